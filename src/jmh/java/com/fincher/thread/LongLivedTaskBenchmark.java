@@ -0,0 +1,140 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the cost of starting, iterating and cancelling LongLivedTasks and the latency of a
+ * Future.get call waking up when a task terminates, for each way a task can be executed.
+ * 
+ * @author Brian Fincher
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LongLivedTaskBenchmark {
+
+    public enum ExecutionMode {
+        PLATFORM, VIRTUAL, EXECUTOR, GROUP
+    }
+
+    private static final int NUM_ITERATIONS = 1000;
+
+    @Param
+    private ExecutionMode executionMode;
+
+    private ExecutorService executor;
+    private LongLivedTaskGroup group;
+
+    @Setup
+    public void setup() {
+        switch (executionMode) {
+        case VIRTUAL:
+            VirtualThreads.requireFactory();
+            break;
+
+        case EXECUTOR:
+            executor = Executors.newCachedThreadPool();
+            break;
+
+        case GROUP:
+            group = new LongLivedTaskGroup("LongLivedTaskBenchmark",
+                    Runtime.getRuntime().availableProcessors());
+            break;
+
+        default:
+            break;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        if (group != null) {
+            group.shutdown();
+            group.awaitTermination(Duration.ofSeconds(10));
+        }
+    }
+
+    @Benchmark
+    public boolean startAndCancel() {
+        Future<Void> future = start(LongLivedTask.create("startAndCancel", new CountingTask(Long.MAX_VALUE)));
+        return future.cancel(true);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(NUM_ITERATIONS)
+    public Void iterate() throws InterruptedException, ExecutionException {
+        return start(LongLivedTask.create("iterate", new CountingTask(NUM_ITERATIONS))).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public Void getWakeupLatency() throws InterruptedException, ExecutionException {
+        return start(LongLivedTask.create("getWakeupLatency", new CountingTask(1))).get();
+    }
+
+    private <T> Future<T> start(LongLivedTask<T> task) {
+        switch (executionMode) {
+        case PLATFORM:
+            return task.start();
+
+        case VIRTUAL:
+            return task.startVirtual();
+
+        case EXECUTOR:
+            return task.startOn(executor);
+
+        case GROUP:
+            return task.start(group);
+
+        default:
+            throw new IllegalStateException(executionMode.toString());
+        }
+    }
+
+    private static class CountingTask implements RunnableTask {
+        private final long numIterations;
+        private long count = 0;
+
+        CountingTask(long numIterations) {
+            this.numIterations = numIterations;
+        }
+
+        @Override
+        public void run() {
+            count++;
+        }
+
+        @Override
+        public boolean continueExecution() {
+            return count < numIterations;
+        }
+
+        @Override
+        public void terminate() {
+        }
+    }
+}
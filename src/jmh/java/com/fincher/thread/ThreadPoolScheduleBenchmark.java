@@ -0,0 +1,96 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures the cost of scheduling and cancelling delayed tasks on a ThreadPool and a
+ * TimingWheelThreadPool compared with a plain ScheduledThreadPoolExecutor.
+ * 
+ * @author Brian Fincher
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadPoolScheduleBenchmark {
+
+    public enum ExecutorType {
+        THREAD_POOL, TIMING_WHEEL_THREAD_POOL, SCHEDULED_THREAD_POOL_EXECUTOR
+    }
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    private static final Runnable NO_OP = () -> {
+    };
+
+    @Param({ "1", "4", "16" })
+    private int corePoolSize;
+
+    @Param
+    private ExecutorType executorType;
+
+    private ScheduledThreadPoolExecutor executor;
+
+    @Setup
+    public void setup() {
+        switch (executorType) {
+        case THREAD_POOL:
+            executor = new ThreadPool(corePoolSize);
+            break;
+
+        case TIMING_WHEEL_THREAD_POOL:
+            executor = new TimingWheelThreadPool(corePoolSize);
+            break;
+
+        case SCHEDULED_THREAD_POOL_EXECUTOR:
+            executor = new ScheduledThreadPoolExecutor(corePoolSize);
+            break;
+
+        default:
+            throw new IllegalStateException(executorType.toString());
+        }
+
+        // cancelled timeouts would otherwise accumulate in the queue for the length of the run
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean scheduleAndCancel() {
+        return schedule(NO_OP, TIMEOUT).cancel(false);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object scheduleLatency() throws Exception {
+        return schedule(NO_OP, Duration.ZERO).get();
+    }
+
+    private ScheduledFuture<?> schedule(Runnable command, Duration delay) {
+        if (executor instanceof ThreadPool) {
+            return ((ThreadPool) executor).schedule(command, delay);
+        }
+        return executor.schedule(command, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,99 @@
+package com.fincher.thread;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the throughput and latency of submitting immediate tasks to a ThreadPool and a
+ * WorkStealingThreadPool compared with a plain ScheduledThreadPoolExecutor and a virtual thread
+ * per task executor.
+ * 
+ * @author Brian Fincher
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThreadPoolSubmitBenchmark {
+
+    public enum ExecutorType {
+        THREAD_POOL, WORK_STEALING_THREAD_POOL, SCHEDULED_THREAD_POOL_EXECUTOR, VIRTUAL
+    }
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final Callable<Boolean> CALLABLE = () -> Boolean.TRUE;
+
+    @Param({ "1", "4", "16" })
+    private int corePoolSize;
+
+    @Param
+    private ExecutorType executorType;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        switch (executorType) {
+        case THREAD_POOL:
+            executor = new ThreadPool(corePoolSize);
+            break;
+
+        case WORK_STEALING_THREAD_POOL:
+            executor = new WorkStealingThreadPool(corePoolSize);
+            break;
+
+        case SCHEDULED_THREAD_POOL_EXECUTOR:
+            executor = new ScheduledThreadPoolExecutor(corePoolSize);
+            break;
+
+        case VIRTUAL:
+            // a new virtual thread per task, the equivalent of Executors.newVirtualThreadPerTaskExecutor
+            executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    VirtualThreads.requireFactory());
+            break;
+
+        default:
+            throw new IllegalStateException(executorType.toString());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void submitThroughput() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            executor.execute(latch::countDown);
+        }
+        latch.await();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Boolean submitLatency() throws Exception {
+        return executor.submit(CALLABLE).get();
+    }
+}
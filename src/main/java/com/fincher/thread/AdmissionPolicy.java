@@ -0,0 +1,33 @@
+package com.fincher.thread;
+
+import java.util.concurrent.RunnableScheduledFuture;
+
+/**
+ * <pre>
+ * Decides whether a task submitted to a ThreadPool is admitted to the pool's queue.
+ * 
+ * The policy is consulted on the submitting thread before a one shot task is queued.  A 
+ * task that is not admitted, or that would exceed the pool's maximum queue size, is passed 
+ * to the pool's rejected execution handler.  Periodic tasks are always admitted.
+ * 
+ * An admission policy is notified of the execution of tasks as a ThreadPoolListener while 
+ * it is installed in a pool.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public interface AdmissionPolicy extends ThreadPoolListener {
+
+    /**
+     * Decides whether a task is admitted
+     * 
+     * @param threadPool The pool to which the task was submitted
+     * @param task The task to be queued
+     * @param priority The priority of the task if it is a {@link PrioritizedTask}, otherwise
+     *            zero
+     * @return True if the task should be queued, false if it should be rejected
+     */
+    public boolean admit(ThreadPool threadPool, RunnableScheduledFuture<?> task, int priority);
+
+}
@@ -0,0 +1,84 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * An idle strategy that progressively backs off while there is no work.
+ * 
+ * Consecutive idle iterations first spin, then yield, then park for a period that doubles 
+ * on each idle iteration from the minimum park period up to the maximum park period.  Any 
+ * iteration that performs work resets the backoff.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class BackoffIdleStrategy implements IdleStrategy {
+
+    private final long maxSpins;
+    private final long maxYields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    private long spins;
+    private long yields;
+    private long parkNanos;
+
+    /**
+     * Constructs a new BackoffIdleStrategy that spins 10 times, yields 5 times and parks from 1
+     * microsecond up to 1 millisecond.
+     */
+    public BackoffIdleStrategy() {
+        this(10, 5, Duration.ofNanos(1000), Duration.ofMillis(1));
+    }
+
+    /**
+     * Constructs a new BackoffIdleStrategy
+     * 
+     * @param maxSpins The number of idle iterations that spin before yielding
+     * @param maxYields The number of idle iterations that yield before parking
+     * @param minParkPeriod The first park period
+     * @param maxParkPeriod The maximum park period
+     */
+    public BackoffIdleStrategy(long maxSpins, long maxYields, Duration minParkPeriod, Duration maxParkPeriod) {
+        Preconditions.checkArgument(maxSpins >= 0, "maxSpins must not be negative");
+        Preconditions.checkArgument(maxYields >= 0, "maxYields must not be negative");
+        Preconditions.checkArgument(!minParkPeriod.isNegative() && !minParkPeriod.isZero(),
+                "minParkPeriod must be positive");
+        Preconditions.checkArgument(maxParkPeriod.compareTo(minParkPeriod) >= 0,
+                "maxParkPeriod must not be less than minParkPeriod");
+
+        this.maxSpins = maxSpins;
+        this.maxYields = maxYields;
+        this.minParkNanos = minParkPeriod.toNanos();
+        this.maxParkNanos = maxParkPeriod.toNanos();
+        reset();
+    }
+
+    @Override
+    public void idle(int workCount) {
+        if (workCount > 0) {
+            reset();
+        } else if (spins < maxSpins) {
+            spins++;
+            Thread.onSpinWait();
+        } else if (yields < maxYields) {
+            yields++;
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+        }
+    }
+
+    @Override
+    public void reset() {
+        spins = 0;
+        yields = 0;
+        parkNanos = minParkNanos;
+    }
+}
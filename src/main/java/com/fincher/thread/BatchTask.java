@@ -0,0 +1,23 @@
+package com.fincher.thread;
+
+import java.util.List;
+
+/**
+ * A task that processes elements drained from a source queue in batches.
+ * 
+ * @author Brian Fincher
+ *
+ * @param <E> The type of element
+ */
+public interface BatchTask<E> extends Task {
+
+    /**
+     * Processes a batch of elements. The list is reused between iterations and must not be
+     * retained after this method returns.
+     * 
+     * @param batch The elements drained from the source queue, never empty
+     * @throws Exception if unable to process the batch
+     */
+    public void process(List<E> batch) throws Exception;
+
+}
@@ -0,0 +1,87 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * An admission policy that blocks the submitting thread while the pool's queue is full.
+ * 
+ * The submitting thread waits up to the timeout for a task to be taken from the queue.  The 
+ * task is rejected if the queue is still full or the thread is interrupted.  Tasks submitted 
+ * from the pool's own threads should not use this policy without a short timeout since the 
+ * submitting thread cannot take tasks from the queue while it waits.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class BlockingAdmissionPolicy implements AdmissionPolicy {
+
+    /** Rechecks the queue periodically since removals of cancelled tasks are not signalled */
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final long timeoutNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * Constructs a new BlockingAdmissionPolicy
+     * 
+     * @param timeout The maximum time a submitting thread waits for space in the queue
+     */
+    public BlockingAdmissionPolicy(Duration timeout) {
+        Preconditions.checkArgument(!timeout.isNegative(), "timeout must not be negative");
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public boolean admit(ThreadPool threadPool, RunnableScheduledFuture<?> task, int priority) {
+        if (!isFull(threadPool)) {
+            return true;
+        }
+
+        long deadline = System.nanoTime() + timeoutNanos;
+        waiters.incrementAndGet();
+        lock.lock();
+        try {
+            while (isFull(threadPool)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || threadPool.isShutdown()) {
+                    return false;
+                }
+                notFull.awaitNanos(Math.min(remaining, MAX_WAIT_NANOS));
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+            waiters.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void taskStarted(Runnable task, long queueWaitNanos, boolean periodic) {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static boolean isFull(ThreadPool threadPool) {
+        return threadPool.getQueue().size() >= threadPool.getMaximumQueueSize();
+    }
+}
@@ -0,0 +1,58 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An idle strategy that blocks while there is no work until {@link #signal()} is called or the
+ * maximum wait elapses. Producers of work for the task should call signal after making work
+ * available.
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class BlockingIdleStrategy implements IdleStrategy {
+
+    private final long maxWaitNanos;
+    private final AtomicBoolean signalled = new AtomicBoolean(false);
+    private volatile Thread waiter;
+
+    /**
+     * Constructs a new BlockingIdleStrategy
+     * 
+     * @param maxWait The maximum time to block waiting for a signal
+     */
+    public BlockingIdleStrategy(Duration maxWait) {
+        Preconditions.checkArgument(!maxWait.isNegative() && !maxWait.isZero(), "maxWait must be positive");
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public void idle(int workCount) {
+        if (workCount > 0 || signalled.getAndSet(false)) {
+            return;
+        }
+
+        waiter = Thread.currentThread();
+        if (!signalled.get()) {
+            LockSupport.parkNanos(this, maxWaitNanos);
+        }
+        waiter = null;
+        signalled.set(false);
+    }
+
+    /**
+     * Wakes the thread blocked in this strategy. If no thread is blocked the next idle
+     * iteration returns immediately.
+     */
+    public void signal() {
+        signalled.set(true);
+        Thread t = waiter;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.fincher.thread;
+
+/**
+ * An idle strategy that busy spins, hinting to the processor with {@link Thread#onSpinWait()}.
+ * Provides the lowest latency at the cost of consuming a core while idle.
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class BusySpinIdleStrategy implements IdleStrategy {
+
+    /** The shared instance, this strategy holds no state */
+    public static final BusySpinIdleStrategy INSTANCE = new BusySpinIdleStrategy();
+
+    private BusySpinIdleStrategy() {
+    }
+
+    @Override
+    public void idle(int workCount) {
+        if (workCount <= 0) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.concurrent.RunnableScheduledFuture;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * An admission policy that sheds load when tasks persistently wait too long in the queue, 
+ * modeled on the CoDel queue management algorithm.
+ * 
+ * Once every task started during an interval has waited longer than the target, the policy 
+ * enters a dropping state and rejects submitted tasks at a rate that increases with the 
+ * square root of the number rejected, until a task starts that waited less than the target 
+ * or the queue empties.  A short burst that is drained within an interval is not shed.
+ * 
+ * At most one task is rejected per interval divided by the square root of the number 
+ * rejected, so the policy reduces but cannot by itself bound the growth of the queue under a 
+ * sustained overload.  Set {@link ThreadPool#setMaximumQueueSize(int)} as well for a hard 
+ * limit on the queue.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class CoDelAdmissionPolicy implements AdmissionPolicy {
+
+    private final long targetNanos;
+    private final long intervalNanos;
+
+    private volatile boolean dropping;
+    private volatile boolean aboveTarget;
+    private long firstAboveTime;
+    private long dropNext;
+    private long dropCount;
+
+    /**
+     * Constructs a new CoDelAdmissionPolicy with a target of 5 milliseconds and an interval of
+     * 100 milliseconds
+     */
+    public CoDelAdmissionPolicy() {
+        this(Duration.ofMillis(5), Duration.ofMillis(100));
+    }
+
+    /**
+     * Constructs a new CoDelAdmissionPolicy
+     * 
+     * @param target The acceptable time for tasks to wait in the queue
+     * @param interval The time for which waits must exceed the target before tasks are shed
+     */
+    public CoDelAdmissionPolicy(Duration target, Duration interval) {
+        Preconditions.checkArgument(!target.isNegative() && !target.isZero(), "target must be positive");
+        Preconditions.checkArgument(!interval.isNegative() && !interval.isZero(), "interval must be positive");
+        this.targetNanos = target.toNanos();
+        this.intervalNanos = interval.toNanos();
+    }
+
+    @Override
+    public boolean admit(ThreadPool threadPool, RunnableScheduledFuture<?> task, int priority) {
+        if (!dropping) {
+            return true;
+        }
+
+        synchronized (this) {
+            if (!dropping) {
+                return true;
+            }
+
+            if (threadPool.getQueue().isEmpty()) {
+                resetLocked();
+                return true;
+            }
+
+            long now = System.nanoTime();
+            if (now - dropNext < 0) {
+                return true;
+            }
+
+            dropCount++;
+            dropNext = now + (long) (intervalNanos / Math.sqrt(dropCount));
+            return false;
+        }
+    }
+
+    @Override
+    public void taskStarted(Runnable task, long queueWaitNanos, boolean periodic) {
+        if (periodic || (queueWaitNanos < targetNanos && !aboveTarget)) {
+            return;
+        }
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (queueWaitNanos < targetNanos) {
+                resetLocked();
+            } else if (!aboveTarget) {
+                aboveTarget = true;
+                firstAboveTime = now;
+            } else if (!dropping && now - firstAboveTime >= intervalNanos) {
+                dropping = true;
+                dropCount = 0;
+                dropNext = now;
+            }
+        }
+    }
+
+    /**
+     * Determines if submitted tasks are currently being shed
+     * 
+     * @return True if tasks are being shed
+     */
+    public boolean isDropping() {
+        return dropping;
+    }
+
+    private void resetLocked() {
+        aboveTarget = false;
+        dropping = false;
+    }
+}
@@ -0,0 +1,223 @@
+package com.fincher.thread;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <pre>
+ * Reads the NUMA topology and sets the CPU affinity of threads on Linux.
+ * 
+ * The topology is read from /sys/devices/system/node and thread affinities are read from 
+ * /proc/thread-self/status.  Affinity is set by running taskset for the current thread's id, 
+ * the equivalent of sched_setaffinity without a native library.
+ * 
+ * Running taskset forks a process, which is too slow for the thread creation path of a pool 
+ * whose threads time out and are replaced.  A thread therefore only queues its request and 
+ * continues, and a single shared thread runs taskset for each request in turn, briefly 
+ * leaving the requesting thread on any CPU.  At most 64 requests are pending, further 
+ * requests fail, and no process is forked when a thread already has the requested affinity, 
+ * such as a thread created by a thread of the same placement.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+final class CpuAffinity {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CpuAffinity.class);
+
+    private static final Path THREAD_SELF = Paths.get("/proc/thread-self");
+    private static final Path NODES = Paths.get("/sys/devices/system/node");
+    private static final Path TASKSET = Paths.get("/usr/bin/taskset");
+
+    private static final boolean SUPPORTED = Files.isReadable(THREAD_SELF.resolve("status"))
+            && Files.isExecutable(TASKSET);
+
+    private static final int MAX_PENDING_REQUESTS = 64;
+
+    // runs taskset on behalf of the requesting threads, its thread exits while idle
+    private static final ThreadPoolExecutor PINNER = newPinner();
+
+    private CpuAffinity() {
+    }
+
+    /**
+     * Determines if thread affinity can be read and set on this platform
+     * 
+     * @return True if affinity is supported
+     */
+    static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * Gets the CPUs of each NUMA node that this process may use. If the topology cannot be read
+     * all CPUs are reported as a single node.
+     * 
+     * @return The CPUs of each node in node order
+     */
+    static List<List<Integer>> getNumaNodes() {
+        List<Integer> allowed = getAllowedCpus(Paths.get("/proc/self/status"));
+        TreeMap<Integer, List<Integer>> nodes = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(NODES, "node[0-9]*")) {
+            for (Path node : stream) {
+                int id = Integer.parseInt(node.getFileName().toString().substring("node".length()));
+                List<Integer> cpus = parseCpuList(read(node.resolve("cpulist")));
+                cpus.retainAll(allowed);
+                if (!cpus.isEmpty()) {
+                    nodes.put(id, cpus);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Unable to read the NUMA topology", e);
+        }
+
+        if (nodes.isEmpty()) {
+            return Collections.singletonList(allowed);
+        }
+        return new ArrayList<>(nodes.values());
+    }
+
+    /**
+     * Gets the CPUs on which the current thread may run
+     * 
+     * @return The CPUs
+     */
+    static List<Integer> getCurrentThreadAffinity() {
+        return getAllowedCpus(THREAD_SELF.resolve("status"));
+    }
+
+    /**
+     * Restricts the current thread to the given CPUs. The affinity is set asynchronously, and
+     * a warning is logged if taskset then fails.
+     * 
+     * @param cpus The CPUs
+     * @return True if the thread already has the affinity or the request was queued, false if
+     *         the affinity cannot be set
+     */
+    static boolean setCurrentThreadAffinity(Collection<Integer> cpus) {
+        if (!SUPPORTED || cpus.isEmpty()) {
+            return false;
+        }
+        if (new HashSet<>(getCurrentThreadAffinity()).equals(new HashSet<>(cpus))) {
+            return true;
+        }
+
+        String tid;
+        try {
+            // the link target is <pid>/task/<tid>
+            String target = Files.readSymbolicLink(THREAD_SELF).toString();
+            tid = target.substring(target.lastIndexOf('/') + 1);
+        } catch (IOException e) {
+            LOG.debug("Unable to read the thread id", e);
+            return false;
+        }
+
+        Thread thread = Thread.currentThread();
+        String cpuList = cpus.stream().map(String::valueOf).collect(Collectors.joining(","));
+        try {
+            PINNER.execute(() -> {
+                // a thread that has already exited no longer needs its affinity
+                if (thread.isAlive() && !runTaskset(cpuList, tid)) {
+                    LOG.warn("Unable to set the affinity of {} to CPUs {}", thread.getName(), cpuList);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private static boolean runTaskset(String cpuList, String tid) {
+        try {
+            Process process = new ProcessBuilder(TASKSET.toString(), "-pc", cpuList, tid)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (IOException e) {
+            LOG.debug("Unable to set thread affinity", e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static ThreadPoolExecutor newPinner() {
+        ThreadPoolExecutor pinner = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_REQUESTS), r -> {
+                    Thread thread = new Thread(r, "CpuAffinity");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pinner.allowCoreThreadTimeOut(true);
+        return pinner;
+    }
+
+    /**
+     * Parses a Linux CPU list such as 0-3,8,10-11
+     * 
+     * @param cpuList The CPU list
+     * @return The CPUs
+     */
+    static List<Integer> parseCpuList(String cpuList) {
+        List<Integer> cpus = new ArrayList<>();
+        for (String range : cpuList.trim().split(",")) {
+            if (range.isEmpty()) {
+                continue;
+            }
+            int dash = range.indexOf('-');
+            int first = Integer.parseInt(range.substring(0, dash < 0 ? range.length() : dash).trim());
+            int last = dash < 0 ? first : Integer.parseInt(range.substring(dash + 1).trim());
+            for (int cpu = first; cpu <= last; cpu++) {
+                cpus.add(cpu);
+            }
+        }
+        return cpus;
+    }
+
+    private static List<Integer> getAllowedCpus(Path status) {
+        try {
+            for (String line : Files.readAllLines(status, StandardCharsets.US_ASCII)) {
+                if (line.startsWith("Cpus_allowed_list:")) {
+                    return parseCpuList(line.substring("Cpus_allowed_list:".length()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Unable to read the allowed CPUs from {}", status, e);
+        }
+
+        List<Integer> cpus = new ArrayList<>();
+        for (int cpu = 0; cpu < Runtime.getRuntime().availableProcessors(); cpu++) {
+            cpus.add(cpu);
+        }
+        return cpus;
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,246 @@
+package com.fincher.thread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A ThreadPool that dispatches tasks without a delay to a separate executor. Delayed and
+ * periodic tasks are scheduled as in a ThreadPool and execute on the pool's scheduler threads.
+ * Dispatched tasks that have not started are drained from the separate executor and returned 
+ * by shutdownNow.
+ * 
+ * @author Brian Fincher
+ *
+ */
+abstract class DispatchingThreadPool extends ThreadPool {
+
+    private final ExecutorService immediateExecutor;
+
+    DispatchingThreadPool(int corePoolSize, ExecutorService immediateExecutor) {
+        super(corePoolSize);
+        this.immediateExecutor = immediateExecutor;
+    }
+
+    DispatchingThreadPool(int corePoolSize, RejectedExecutionHandler handler, ExecutorService immediateExecutor) {
+        super(corePoolSize, handler);
+        this.immediateExecutor = immediateExecutor;
+    }
+
+    /**
+     * Creates the task dispatched for a runnable
+     * 
+     * @param runnable The runnable
+     * @param result The result of the future
+     * @param <T> The result type
+     * @return The task
+     */
+    abstract <T> ImmediateTask<T> newImmediateTask(Runnable runnable, T result);
+
+    /**
+     * Creates the task dispatched for a callable
+     * 
+     * @param callable The callable
+     * @param <T> The result type
+     * @return The task
+     */
+    abstract <T> ImmediateTask<T> newImmediateTask(Callable<T> callable);
+
+    /**
+     * Stops the immediate executor, interrupting running tasks, and drains the dispatched tasks
+     * that have not started
+     * 
+     * @return The tasks that have not started
+     */
+    abstract List<ImmediateTask<?>> shutdownImmediateExecutorNow();
+
+    /**
+     * Executes a task on the immediate executor
+     * 
+     * @param task The task
+     */
+    void executeImmediate(ImmediateTask<?> task) {
+        immediateExecutor.execute(task);
+    }
+
+    /**
+     * Dispatches a task to the immediate executor, rejecting it if the pool has been shut down.
+     * A rejected task is cancelled unless the rejected execution handler ran it.
+     * 
+     * @param task The task
+     */
+    void dispatch(ImmediateTask<?> task) {
+        register();
+        if (isShutdown()) {
+            rejectDispatched(task);
+            return;
+        }
+
+        try {
+            executeImmediate(task);
+        } catch (RejectedExecutionException e) {
+            rejectDispatched(task);
+        }
+    }
+
+    private void rejectDispatched(ImmediateTask<?> task) {
+        try {
+            reject(task);
+        } finally {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Dispatched tasks are not queued in the pool's queue, so they could not be subject to an
+     * admission policy
+     * 
+     * @throws UnsupportedOperationException If admissionPolicy is not null
+     */
+    @Override
+    public void setAdmissionPolicy(AdmissionPolicy admissionPolicy) {
+        if (admissionPolicy != null) {
+            throw new UnsupportedOperationException(
+                    getClass().getSimpleName() + " does not support an admission policy");
+        }
+        super.setAdmissionPolicy(null);
+    }
+
+    /**
+     * Dispatched tasks are not queued in the pool's queue, so they could not be bounded by a
+     * maximum queue size
+     * 
+     * @throws UnsupportedOperationException If maximumQueueSize is not Integer.MAX_VALUE
+     */
+    @Override
+    public void setMaximumQueueSize(int maximumQueueSize) {
+        if (maximumQueueSize != Integer.MAX_VALUE) {
+            throw new UnsupportedOperationException(
+                    getClass().getSimpleName() + " does not support a maximum queue size");
+        }
+        super.setMaximumQueueSize(maximumQueueSize);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Preconditions.checkNotNull(command);
+        if (command instanceof ImmediateTask && ((ImmediateTask<?>) command).isDispatchedBy(this)) {
+            // created by newTaskFor for invokeAll or invokeAny
+            dispatch((ImmediateTask<?>) command);
+        } else {
+            dispatch(newImmediateTask(command, null));
+        }
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        Preconditions.checkNotNull(task);
+        return submit(newImmediateTask(task, null));
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        Preconditions.checkNotNull(task);
+        return submit(newImmediateTask(task, result));
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        Preconditions.checkNotNull(task);
+        return submit(newImmediateTask(task));
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return newImmediateTask(runnable, value);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return newImmediateTask(callable);
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        immediateExecutor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> notExecuted = new ArrayList<>(super.shutdownNow());
+        for (ImmediateTask<?> task : shutdownImmediateExecutorNow()) {
+            notExecuted.add(task);
+            task.drained();
+        }
+        return notExecuted;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return super.isTerminated() && immediateExecutor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return super.awaitTermination(timeout, unit)
+                && immediateExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private <T> Future<T> submit(ImmediateTask<T> task) {
+        dispatch(task);
+        return task;
+    }
+
+    /**
+     * A task dispatched to the immediate executor. A task that is cancelled or drained by
+     * shutdownNow exits its command if the command is an ExitingCommand.
+     * 
+     * @param <T> The result type
+     */
+    class ImmediateTask<T> extends FutureTask<T> {
+        private final Object command;
+
+        ImmediateTask(Runnable runnable, T result) {
+            super(runnable, result);
+            this.command = runnable;
+        }
+
+        ImmediateTask(Callable<T> callable) {
+            super(callable);
+            this.command = callable;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                exit();
+            }
+        }
+
+        /** Called when this task has been drained by shutdownNow */
+        void drained() {
+            exit();
+        }
+
+        boolean isDispatchedBy(DispatchingThreadPool pool) {
+            return DispatchingThreadPool.this == pool;
+        }
+
+        private void exit() {
+            if (command instanceof ExitingCommand) {
+                ((ExitingCommand) command).exit();
+            }
+        }
+    }
+}
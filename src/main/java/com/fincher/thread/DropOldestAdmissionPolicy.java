@@ -0,0 +1,127 @@
+package com.fincher.thread;
+
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * An admission policy that makes room in a full queue by discarding the lowest priority task.
+ * 
+ * When the pool's queue is full the queued one shot task with the lowest priority is removed 
+ * and cancelled, the oldest being chosen among tasks of equal priority.  If every queued task 
+ * has a higher priority than the submitted task, the submitted task is rejected instead.  
+ * Discarded tasks are counted as rejected but are not passed to the rejected execution 
+ * handler.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class DropOldestAdmissionPolicy implements AdmissionPolicy {
+
+    /** The priority and admission order of a queued task */
+    private static final class Admission implements Comparable<Admission> {
+        private final RunnableScheduledFuture<?> task;
+        private final int priority;
+        private final long sequenceNumber;
+
+        Admission(RunnableScheduledFuture<?> task, int priority, long sequenceNumber) {
+            this.task = task;
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public int compareTo(Admission other) {
+            int result = Integer.compare(priority, other.priority);
+            return result != 0 ? result : Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+
+    // ordered by priority then admission so that the first admission is the next victim
+    private final NavigableSet<Admission> byPriority = new ConcurrentSkipListSet<>();
+    private final Map<Runnable, Admission> queued = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public boolean admit(ThreadPool threadPool, RunnableScheduledFuture<?> task, int priority) {
+        while (threadPool.getQueue().size() >= threadPool.getMaximumQueueSize()) {
+            RunnableScheduledFuture<?> victim = findVictim(priority);
+            if (victim == null) {
+                return false;
+            }
+
+            if (threadPool.remove(victim)) {
+                victim.cancel(false);
+                threadPool.taskRejected(victim);
+            }
+        }
+
+        Admission admission = new Admission(task, priority, sequence.getAndIncrement());
+        queued.put(task, admission);
+        byPriority.add(admission);
+        return true;
+    }
+
+    @Override
+    public void taskStarted(Runnable task, long queueWaitNanos, boolean periodic) {
+        if (!periodic) {
+            forget(task);
+        }
+    }
+
+    @Override
+    public void taskRejected(Runnable task) {
+        forget(task);
+    }
+
+    @Override
+    public void taskRemoved(Runnable task) {
+        forget(task);
+    }
+
+    /**
+     * Gets the number of queued tasks tracked by this policy
+     * 
+     * @return The number of tracked tasks
+     */
+    int getTrackedCount() {
+        return queued.size();
+    }
+
+    private void forget(Runnable task) {
+        Admission admission = queued.remove(task);
+        if (admission != null) {
+            byPriority.remove(admission);
+        }
+    }
+
+    /**
+     * Removes and returns the oldest task of the lowest priority not greater than the given
+     * priority, discarding cancelled tasks that are still queued
+     */
+    private RunnableScheduledFuture<?> findVictim(int maxPriority) {
+        while (true) {
+            Admission first;
+            try {
+                first = byPriority.first();
+            } catch (NoSuchElementException e) {
+                return null;
+            }
+            if (first.priority > maxPriority) {
+                return null;
+            }
+            if (byPriority.remove(first)) {
+                queued.remove(first.task);
+                if (!first.task.isDone()) {
+                    return first.task;
+                }
+            }
+        }
+    }
+}
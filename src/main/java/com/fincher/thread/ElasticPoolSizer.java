@@ -0,0 +1,232 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Adjusts the number of threads in a ThreadPool between configured bounds based on measured 
+ * queue wait and throughput.
+ * 
+ * At each sample interval the number of threads needed is estimated with Little's law as the 
+ * task completion rate multiplied by the mean execution time, divided by the target 
+ * utilization.  When tasks wait in the queue longer than the target queue wait the pool grows 
+ * by at least half its current size, and when the queue wait is below half the target the pool 
+ * shrinks by one thread at a time.  Threads that are idle for the idle timeout are retired.
+ * 
+ * While started the sizer sets the pool's keep alive time to the idle timeout and allows 
+ * core threads to time out.  Closing the sizer restores both.
+ * 
+ * Pools that dispatch tasks to a separate executor, such as a WorkStealingThreadPool or 
+ * PriorityThreadPool, are not supported since those tasks are neither measured nor run by 
+ * the threads the sizer adjusts.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class ElasticPoolSizer implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ElasticPoolSizer.class);
+
+    private static final double TARGET_UTILIZATION = 0.8;
+
+    private static final ScheduledThreadPoolExecutor sampler = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "ElasticPoolSizer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        sampler.setRemoveOnCancelPolicy(true);
+    }
+
+    private final ThreadPool threadPool;
+    private final int minThreads;
+    private final int maxThreads;
+    private final long targetQueueWaitNanos;
+    private final Duration sampleInterval;
+    private final long idleTimeoutNanos;
+
+    // guarded by this
+    private ScheduledFuture<?> samplingFuture;
+    private boolean closed;
+    private long previousKeepAliveNanos;
+    private boolean previousAllowCoreThreadTimeOut;
+
+    // only accessed by the sampler thread
+    private long lastSampleNanos;
+    private long lastQueueWaitCount;
+    private long lastQueueWaitTotal;
+    private long lastExecutionCount;
+    private long lastExecutionTotal;
+
+    /**
+     * Constructs a new ElasticPoolSizer that samples every 100 milliseconds and retires threads
+     * that are idle for 30 seconds
+     * 
+     * @param threadPool The pool to size, which must record metrics and must not dispatch tasks
+     *            to a separate executor
+     * @param minThreads The minimum number of threads
+     * @param maxThreads The maximum number of threads
+     * @param targetQueueWait The target time for tasks to wait in the queue
+     */
+    public ElasticPoolSizer(ThreadPool threadPool, int minThreads, int maxThreads, Duration targetQueueWait) {
+        this(threadPool, minThreads, maxThreads, targetQueueWait, Duration.ofMillis(100), Duration.ofSeconds(30));
+    }
+
+    /**
+     * Constructs a new ElasticPoolSizer
+     * 
+     * @param threadPool The pool to size, which must record metrics and must not dispatch tasks
+     *            to a separate executor
+     * @param minThreads The minimum number of threads
+     * @param maxThreads The maximum number of threads
+     * @param targetQueueWait The target time for tasks to wait in the queue
+     * @param sampleInterval The interval between sizing decisions
+     * @param idleTimeout The time after which an idle thread is retired
+     */
+    public ElasticPoolSizer(ThreadPool threadPool, int minThreads, int maxThreads, Duration targetQueueWait,
+            Duration sampleInterval, Duration idleTimeout) {
+        Preconditions.checkArgument(!(threadPool instanceof DispatchingThreadPool),
+                "%s dispatches tasks to a separate executor which cannot be sized",
+                threadPool.getClass().getSimpleName());
+        Preconditions.checkArgument(threadPool.isMetricsEnabled(), "The pool must record metrics");
+        Preconditions.checkArgument(minThreads > 0, "minThreads must be positive");
+        Preconditions.checkArgument(maxThreads >= minThreads, "maxThreads must not be less than minThreads");
+        Preconditions.checkArgument(!targetQueueWait.isNegative() && !targetQueueWait.isZero(),
+                "targetQueueWait must be positive");
+        Preconditions.checkArgument(!sampleInterval.isNegative() && !sampleInterval.isZero(),
+                "sampleInterval must be positive");
+        Preconditions.checkArgument(!idleTimeout.isNegative() && !idleTimeout.isZero(),
+                "idleTimeout must be positive");
+
+        this.threadPool = threadPool;
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.targetQueueWaitNanos = targetQueueWait.toNanos();
+        this.sampleInterval = sampleInterval;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    /**
+     * Starts sizing the pool. The pool is immediately sized to at least the minimum and at
+     * most the maximum number of threads, and its idle threads are retired after the idle
+     * timeout.
+     */
+    public synchronized void start() {
+        Preconditions.checkState(samplingFuture == null, "The sizer has already been started");
+        Preconditions.checkState(!closed, "The sizer has been closed");
+
+        previousKeepAliveNanos = threadPool.getKeepAliveTime(TimeUnit.NANOSECONDS);
+        previousAllowCoreThreadTimeOut = threadPool.allowsCoreThreadTimeOut();
+        threadPool.setKeepAliveTime(idleTimeoutNanos, TimeUnit.NANOSECONDS);
+        threadPool.allowCoreThreadTimeOut(true);
+
+        threadPool.setCorePoolSize(clamp(threadPool.getCorePoolSize()));
+        lastSampleNanos = System.nanoTime();
+        ThreadPoolMetrics metrics = threadPool.getMetrics();
+        lastQueueWaitCount = metrics.getQueueWait().getCount();
+        lastQueueWaitTotal = metrics.getQueueWait().getTotal();
+        lastExecutionCount = metrics.getExecutionTime().getCount();
+        lastExecutionTotal = metrics.getExecutionTime().getTotal();
+
+        long intervalNanos = sampleInterval.toNanos();
+        samplingFuture = sampler.scheduleAtFixedRate(this::sample, intervalNanos, intervalNanos,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops sizing the pool. The pool keeps its current size, and its keep alive time and
+     * whether core threads time out are restored.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (samplingFuture != null) {
+            samplingFuture.cancel(false);
+            // restore the core thread time out first since a zero keep alive time is only
+            // accepted when core threads do not time out
+            threadPool.allowCoreThreadTimeOut(previousAllowCoreThreadTimeOut);
+            threadPool.setKeepAliveTime(previousKeepAliveNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void sample() {
+        if (threadPool.isShutdown()) {
+            close();
+            return;
+        }
+
+        try {
+            int current = threadPool.getCorePoolSize();
+            int desired = desiredSize(current);
+            if (desired != current) {
+                LOG.debug("Resizing thread pool from {} to {} threads", current, desired);
+                threadPool.setCorePoolSize(desired);
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Unable to size thread pool", e);
+        }
+    }
+
+    private int desiredSize(int current) {
+        long now = System.nanoTime();
+        long elapsedNanos = Math.max(1, now - lastSampleNanos);
+        lastSampleNanos = now;
+
+        ThreadPoolMetrics metrics = threadPool.getMetrics();
+        long queueWaitCount = metrics.getQueueWait().getCount();
+        long queueWaitTotal = metrics.getQueueWait().getTotal();
+        long executionCount = metrics.getExecutionTime().getCount();
+        long executionTotal = metrics.getExecutionTime().getTotal();
+
+        long waitCount = queueWaitCount - lastQueueWaitCount;
+        long meanQueueWait = waitCount == 0 ? 0 : (queueWaitTotal - lastQueueWaitTotal) / waitCount;
+
+        // tasks stuck in the queue do not appear in the histogram until they start
+        long queueWait = Math.max(meanQueueWait, oldestQueuedTaskWait());
+
+        // Little's law, the number of busy threads is the completion rate times the service time
+        long executed = executionCount - lastExecutionCount;
+        double busyThreads = (double) (executionTotal - lastExecutionTotal) / elapsedNanos;
+        int needed = executed == 0 ? 0 : (int) Math.ceil(busyThreads / TARGET_UTILIZATION);
+
+        lastQueueWaitCount = queueWaitCount;
+        lastQueueWaitTotal = queueWaitTotal;
+        lastExecutionCount = executionCount;
+        lastExecutionTotal = executionTotal;
+
+        int desired = current;
+        if (queueWait > targetQueueWaitNanos) {
+            desired = Math.max(needed, current + Math.max(1, current / 2));
+        } else if (queueWait < targetQueueWaitNanos / 2) {
+            desired = Math.max(needed, current - 1);
+        }
+        return clamp(desired);
+    }
+
+    private long oldestQueuedTaskWait() {
+        Runnable head = threadPool.getQueue().peek();
+        if (head instanceof Delayed) {
+            return Math.max(0, -((Delayed) head).getDelay(TimeUnit.NANOSECONDS));
+        }
+        return 0;
+    }
+
+    private int clamp(int size) {
+        return Math.max(minThreads, Math.min(maxThreads, size));
+    }
+}
@@ -0,0 +1,173 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Determines how a LongLivedTask that continues after exceptions responds to repeated failures.
+ * 
+ * After an iteration that throws an exception the task waits before its next iteration, the 
+ * wait doubling with each consecutive failure from the initial delay up to the maximum delay. 
+ * Each wait is reduced by a random fraction of up to the jitter so that tasks failing on the 
+ * same dependency do not retry in lockstep.
+ * 
+ * With a circuit breaker, once the given number of consecutive iterations have failed the 
+ * task waits for the open duration instead.  The next iteration is a trial, its success 
+ * closes the breaker and its failure opens it again.
+ * 
+ * With a report limit, at most the given number of exceptions are passed to the exception 
+ * handler or logged per period, and the number suppressed is logged with the next report.
+ * 
+ * Policies are immutable and may be shared between tasks.
+ * 
+ * task.setFailurePolicy(FailurePolicy.backoff(Duration.ofMillis(10), Duration.ofSeconds(5))
+ *         .withCircuitBreaker(20, Duration.ofSeconds(30))
+ *         .withReportLimit(1, Duration.ofSeconds(10)));
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class FailurePolicy {
+
+    private static final FailurePolicy NONE = new FailurePolicy(0, 0, 0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, 0);
+
+    private final long initialDelayNanos;
+    private final long maxDelayNanos;
+    private final double jitter;
+    private final int breakerThreshold;
+    private final long openNanos;
+    private final int reportLimit;
+    private final long reportPeriodNanos;
+
+    private FailurePolicy(long initialDelayNanos, long maxDelayNanos, double jitter, int breakerThreshold,
+            long openNanos, int reportLimit, long reportPeriodNanos) {
+        this.initialDelayNanos = initialDelayNanos;
+        this.maxDelayNanos = maxDelayNanos;
+        this.jitter = jitter;
+        this.breakerThreshold = breakerThreshold;
+        this.openNanos = openNanos;
+        this.reportLimit = reportLimit;
+        this.reportPeriodNanos = reportPeriodNanos;
+    }
+
+    /**
+     * Failed iterations are followed immediately by the next iteration and every exception is
+     * reported, the default
+     * 
+     * @return The policy
+     */
+    public static FailurePolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Failed iterations are followed by an exponentially increasing wait with a jitter of 50%
+     * 
+     * @param initialDelay The wait after the first consecutive failure
+     * @param maxDelay The maximum wait
+     * @return The policy
+     */
+    public static FailurePolicy backoff(Duration initialDelay, Duration maxDelay) {
+        Preconditions.checkArgument(!initialDelay.isNegative() && !initialDelay.isZero(),
+                "initialDelay must be positive");
+        Preconditions.checkArgument(maxDelay.compareTo(initialDelay) >= 0,
+                "maxDelay must not be less than initialDelay");
+        return new FailurePolicy(initialDelay.toNanos(), maxDelay.toNanos(), 0.5, Integer.MAX_VALUE, 0,
+                Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Creates a copy of this policy with the given jitter
+     * 
+     * @param jitter The maximum fraction by which a wait is randomly reduced, from 0 to 1
+     * @return The policy
+     */
+    public FailurePolicy withJitter(double jitter) {
+        Preconditions.checkArgument(jitter >= 0 && jitter <= 1, "jitter must be between 0 and 1");
+        return new FailurePolicy(initialDelayNanos, maxDelayNanos, jitter, breakerThreshold, openNanos,
+                reportLimit, reportPeriodNanos);
+    }
+
+    /**
+     * Creates a copy of this policy with a circuit breaker
+     * 
+     * @param consecutiveFailures The number of consecutive failures that open the breaker
+     * @param openDuration The time the task waits while the breaker is open
+     * @return The policy
+     */
+    public FailurePolicy withCircuitBreaker(int consecutiveFailures, Duration openDuration) {
+        Preconditions.checkArgument(consecutiveFailures > 0, "consecutiveFailures must be positive");
+        Preconditions.checkArgument(!openDuration.isNegative() && !openDuration.isZero(),
+                "openDuration must be positive");
+        return new FailurePolicy(initialDelayNanos, maxDelayNanos, jitter, consecutiveFailures,
+                openDuration.toNanos(), reportLimit, reportPeriodNanos);
+    }
+
+    /**
+     * Creates a copy of this policy that limits the rate at which exceptions are reported
+     * 
+     * @param reports The maximum number of exceptions reported per period
+     * @param period The period
+     * @return The policy
+     */
+    public FailurePolicy withReportLimit(int reports, Duration period) {
+        Preconditions.checkArgument(reports > 0, "reports must be positive");
+        Preconditions.checkArgument(!period.isNegative() && !period.isZero(), "period must be positive");
+        return new FailurePolicy(initialDelayNanos, maxDelayNanos, jitter, breakerThreshold, openNanos, reports,
+                period.toNanos());
+    }
+
+    /**
+     * Determines if the circuit breaker is open after the given number of consecutive failures
+     * 
+     * @param consecutiveFailures The number of consecutive failed iterations
+     * @return True if the breaker is open
+     */
+    boolean isOpen(int consecutiveFailures) {
+        return consecutiveFailures >= breakerThreshold;
+    }
+
+    /**
+     * Gets the time to wait after a failed iteration
+     * 
+     * @param consecutiveFailures The number of consecutive failed iterations, at least one
+     * @return The wait in nanoseconds
+     */
+    long getDelayNanos(int consecutiveFailures) {
+        if (isOpen(consecutiveFailures)) {
+            return openNanos;
+        }
+        if (initialDelayNanos == 0) {
+            return 0;
+        }
+
+        int doublings = Math.min(consecutiveFailures - 1, 62);
+        long delay = initialDelayNanos << doublings;
+        if (delay <= 0 || delay > maxDelayNanos || (delay >> doublings) != initialDelayNanos) {
+            delay = maxDelayNanos;
+        }
+        return delay - (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Gets the maximum number of exceptions reported per period
+     * 
+     * @return The limit
+     */
+    int getReportLimit() {
+        return reportLimit;
+    }
+
+    /**
+     * Gets the period over which reports are limited
+     * 
+     * @return The period in nanoseconds
+     */
+    long getReportPeriodNanos() {
+        return reportPeriodNanos;
+    }
+}
@@ -0,0 +1,225 @@
+package com.fincher.thread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Shares the threads of a ThreadPool between partitions using weighted fair queuing.
+ * 
+ * Each task executed in a partition is held in the partition's queue and a dispatch task is 
+ * executed in the pool.  Whichever dispatch task a thread runs selects the next task to run 
+ * from all of the partitions.  A backlogged partition running fewer tasks than its minimum 
+ * number of workers is selected first.  Otherwise the backlogged partition with the least 
+ * virtual time is selected.  A partition's virtual time advances by the execution time of its 
+ * tasks divided by its weight, so over time each backlogged partition receives execution 
+ * time in proportion to its weight while idle capacity is used by whichever partitions have 
+ * work.  Running tasks are not preempted.
+ * 
+ * Every queued task is bound to one pending dispatch task.  A dispatch task that selects a 
+ * task bound to another dispatch task hands its own task to that dispatch task.  If a dispatch 
+ * task will never run, because it was rejected by a handler that does not throw, removed or 
+ * drained by shutdownNow, the task bound to it is removed from its partition and cancelled if 
+ * it is a Future.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+class FairShareScheduler {
+
+    /** The estimated execution time of a partition's tasks before any have completed */
+    private static final double INITIAL_ESTIMATE_NANOS = 1000;
+
+    /** The weight given to each completed task in a partition's estimated execution time */
+    private static final double ESTIMATE_ALPHA = 0.1;
+
+    private final ThreadPool threadPool;
+    private final List<ThreadPoolPartition> partitions = new ArrayList<>();
+    private double virtualClock;
+    private int totalMinimumWorkers;
+
+    FairShareScheduler(ThreadPool threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    synchronized ThreadPoolPartition createPartition(String name, int weight, int minimumWorkers) {
+        Preconditions.checkNotNull(name);
+        Preconditions.checkArgument(weight > 0, "weight must be positive");
+        Preconditions.checkArgument(minimumWorkers >= 0, "minimumWorkers must not be negative");
+        Preconditions.checkArgument(totalMinimumWorkers + minimumWorkers <= threadPool.getCorePoolSize(),
+                "The total minimum workers of all partitions must not exceed the core pool size");
+        for (ThreadPoolPartition partition : partitions) {
+            Preconditions.checkArgument(!partition.getName().equals(name), "Partition %s already exists", name);
+        }
+
+        ThreadPoolPartition partition = new ThreadPoolPartition(this, name, weight, minimumWorkers);
+        partition.estimateNanos = INITIAL_ESTIMATE_NANOS;
+        partitions.add(partition);
+        totalMinimumWorkers += minimumWorkers;
+        return partition;
+    }
+
+    synchronized List<ThreadPoolPartition> getPartitions() {
+        return new ArrayList<>(partitions);
+    }
+
+    /**
+     * Queues a task in a partition and executes a dispatch task in the pool
+     * 
+     * @param partition The partition
+     * @param task The task
+     * @throws RejectedExecutionException If the dispatch task is rejected, in which case the task
+     *             is not queued
+     */
+    void execute(ThreadPoolPartition partition, Runnable task) {
+        Dispatch dispatch = new Dispatch();
+        synchronized (this) {
+            if (partition.queue.isEmpty() && partition.running == 0) {
+                // an idle partition does not accumulate credit for the time it was idle
+                partition.virtualTime = Math.max(partition.virtualTime, virtualClock);
+            }
+            Entry entry = new Entry(partition, task, dispatch);
+            dispatch.entry = entry;
+            partition.queue.add(entry);
+        }
+
+        try {
+            threadPool.execute(dispatch);
+        } catch (RejectedExecutionException e) {
+            dispatch.exit();
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the queued task bound to a dispatch task that will never run and cancels it if it
+     * is a Future
+     * 
+     * @param dispatch The dispatch task
+     */
+    private void abandon(Dispatch dispatch) {
+        Entry entry;
+        synchronized (this) {
+            entry = dispatch.entry;
+            entry.partition.queue.remove(entry);
+        }
+
+        if (entry.task instanceof Future) {
+            ((Future<?>) entry.task).cancel(false);
+        }
+    }
+
+    synchronized int getQueueSize(ThreadPoolPartition partition) {
+        return partition.queue.size();
+    }
+
+    synchronized int getRunningCount(ThreadPoolPartition partition) {
+        return partition.running;
+    }
+
+    synchronized long getCompletedCount(ThreadPoolPartition partition) {
+        return partition.completed;
+    }
+
+    private void dispatch(Dispatch dispatch) {
+        ThreadPoolPartition partition;
+        Runnable task;
+        double estimateNanos;
+        synchronized (this) {
+            partition = select();
+            if (partition == null) {
+                return;
+            }
+            Entry entry = partition.queue.poll();
+            if (entry.dispatch != dispatch) {
+                // hand the task bound to this dispatch task to the one the selected task was bound to
+                Entry own = dispatch.entry;
+                own.dispatch = entry.dispatch;
+                entry.dispatch.entry = own;
+            }
+            task = entry.task;
+            partition.running++;
+            estimateNanos = partition.estimateNanos;
+            virtualClock = partition.virtualTime;
+            partition.virtualTime += estimateNanos / partition.weight;
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            long executionNanos = System.nanoTime() - startNanos;
+            synchronized (this) {
+                partition.running--;
+                partition.completed++;
+                partition.virtualTime += (executionNanos - estimateNanos) / partition.weight;
+                partition.estimateNanos += ESTIMATE_ALPHA * (executionNanos - partition.estimateNanos);
+            }
+        }
+    }
+
+    /** Selects the partition from which the next task is run */
+    private ThreadPoolPartition select() {
+        ThreadPoolPartition belowMinimum = null;
+        ThreadPoolPartition leastVirtualTime = null;
+        for (ThreadPoolPartition partition : partitions) {
+            if (partition.queue.isEmpty()) {
+                continue;
+            }
+
+            if (partition.running < partition.minimumWorkers && (belowMinimum == null
+                    || (double) partition.running / partition.minimumWorkers
+                            < (double) belowMinimum.running / belowMinimum.minimumWorkers)) {
+                belowMinimum = partition;
+            }
+
+            if (leastVirtualTime == null || partition.virtualTime < leastVirtualTime.virtualTime) {
+                leastVirtualTime = partition;
+            }
+        }
+        return belowMinimum != null ? belowMinimum : leastVirtualTime;
+    }
+
+    /** A queued task and the pending dispatch task it is bound to */
+    static final class Entry {
+        private final ThreadPoolPartition partition;
+        private final Runnable task;
+
+        // guarded by the scheduler
+        private Dispatch dispatch;
+
+        Entry(ThreadPoolPartition partition, Runnable task, Dispatch dispatch) {
+            this.partition = partition;
+            this.task = task;
+            this.dispatch = dispatch;
+        }
+    }
+
+    /** Runs the next selected task, or abandons the task bound to it if it never runs */
+    private final class Dispatch implements ThreadPool.ExitingCommand {
+        private final AtomicBoolean exited = new AtomicBoolean();
+
+        // guarded by the scheduler, the queued task bound to this dispatch task while pending
+        private Entry entry;
+
+        @Override
+        public void run() {
+            if (exited.compareAndSet(false, true)) {
+                dispatch(this);
+            }
+        }
+
+        @Override
+        public void exit() {
+            if (exited.compareAndSet(false, true)) {
+                abandon(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+
+/**
+ * A task executed periodically at a fixed rate that is informed of executions missed due to
+ * overruns and of the drift of each execution from its scheduled time.
+ * 
+ * @author Brian Fincher
+ *
+ */
+@FunctionalInterface
+public interface FixedRateTask {
+
+    /**
+     * Executes the task
+     * 
+     * @param missedExecutions The number of scheduled executions since the previous execution that
+     *            were not executed due to the {@link OverrunPolicy}
+     * @param drift The time between the scheduled time of this execution and its start
+     */
+    public void run(long missedExecutions, Duration drift);
+
+}
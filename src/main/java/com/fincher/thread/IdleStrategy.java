@@ -0,0 +1,27 @@
+package com.fincher.thread;
+
+/**
+ * Determines how a thread waits between iterations of a task that reported no work.
+ * 
+ * Implementations may hold state and must not be shared between threads.
+ * 
+ * @author Brian Fincher
+ *
+ */
+public interface IdleStrategy {
+
+    /**
+     * Called after each iteration of a task.
+     * 
+     * @param workCount The amount of work performed by the iteration. When greater than zero an
+     *            implementation should return immediately and reset any backoff state.
+     */
+    public void idle(int workCount);
+
+    /**
+     * Resets any backoff state held by this strategy
+     */
+    public default void reset() {
+    }
+
+}
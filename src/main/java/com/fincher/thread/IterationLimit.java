@@ -0,0 +1,144 @@
+package com.fincher.thread;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Limits how often and how much of a core the iterations of a LongLivedTask may use.
+ * 
+ * A rate limit is a token bucket holding up to burst iterations, refilled at the given number
+ * of iterations per second.  An iteration that finds the bucket empty waits until a token is
+ * available.  Because the next start time is computed from the schedule rather than from the
+ * end of a sleep, a late wakeup is made up by the following iterations up to the burst.
+ * 
+ * A duty cycle caps the fraction of time spent executing iterations.  After an iteration that
+ * took d, the task waits d * (1 - dutyCycle) / dutyCycle before the next, so a duty cycle of
+ * 0.2 keeps the task to at most 20% of one core.
+ * 
+ * The task waits without executing the RunnableTask, with no sleep in the task itself.  A
+ * task executed by a LongLivedTaskGroup yields its carrier while waiting.  Limits are
+ * immutable and may be shared between tasks.
+ * 
+ * task.setIterationLimit(IterationLimit.perSecond(100, 10).withDutyCycle(0.2));
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class IterationLimit {
+
+    private static final IterationLimit UNLIMITED = new IterationLimit(0, 0, 1);
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final double dutyCycle;
+
+    private IterationLimit(long intervalNanos, long burstNanos, double dutyCycle) {
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = burstNanos;
+        this.dutyCycle = dutyCycle;
+    }
+
+    /**
+     * Iterations run back to back, the default
+     * 
+     * @return The limit
+     */
+    public static IterationLimit unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Iterations run at no more than the given rate
+     * 
+     * @param iterationsPerSecond The sustained rate
+     * @param burst The maximum number of iterations that may run back to back after the task has
+     *            fallen behind or been idle
+     * @return The limit
+     */
+    public static IterationLimit perSecond(double iterationsPerSecond, int burst) {
+        return UNLIMITED.withRate(iterationsPerSecond, burst);
+    }
+
+    /**
+     * Iterations use no more than the given fraction of one core
+     * 
+     * @param dutyCycle The fraction of time spent executing iterations, greater than 0 and at
+     *            most 1
+     * @return The limit
+     */
+    public static IterationLimit dutyCycle(double dutyCycle) {
+        return UNLIMITED.withDutyCycle(dutyCycle);
+    }
+
+    /**
+     * Creates a copy of this limit with the given rate
+     * 
+     * @param iterationsPerSecond The sustained rate
+     * @param burst The maximum number of iterations that may run back to back
+     * @return The limit
+     */
+    public IterationLimit withRate(double iterationsPerSecond, int burst) {
+        Preconditions.checkArgument(iterationsPerSecond > 0 && iterationsPerSecond <= NANOS_PER_SECOND,
+                "iterationsPerSecond must be positive and at most one per nanosecond");
+        Preconditions.checkArgument(burst > 0, "burst must be positive");
+        long interval = Math.max(1, Math.round(NANOS_PER_SECOND / iterationsPerSecond));
+        long burstNanos = interval * (burst - 1);
+        Preconditions.checkArgument(burstNanos / interval == burst - 1, "burst is too large");
+        return new IterationLimit(interval, burstNanos, dutyCycle);
+    }
+
+    /**
+     * Creates a copy of this limit with the given duty cycle
+     * 
+     * @param dutyCycle The fraction of time spent executing iterations, greater than 0 and at
+     *            most 1
+     * @return The limit
+     */
+    public IterationLimit withDutyCycle(double dutyCycle) {
+        Preconditions.checkArgument(dutyCycle > 0 && dutyCycle <= 1, "dutyCycle must be greater than 0 and at most 1");
+        return new IterationLimit(intervalNanos, burstNanos, dutyCycle);
+    }
+
+    /**
+     * Determines if this limit never delays an iteration
+     * 
+     * @return True if unlimited
+     */
+    boolean isUnlimited() {
+        return intervalNanos == 0 && dutyCycle == 1;
+    }
+
+    /**
+     * Gets the time between iterations at the sustained rate
+     * 
+     * @return The interval in nanoseconds, zero if the rate is not limited
+     */
+    long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /**
+     * Gets the amount by which iterations may run ahead of the sustained rate
+     * 
+     * @return The burst allowance in nanoseconds
+     */
+    long getBurstNanos() {
+        return burstNanos;
+    }
+
+    /**
+     * Gets the time to wait after an iteration to honor the duty cycle
+     * 
+     * @param iterationNanos The duration of the iteration
+     * @return The wait in nanoseconds
+     */
+    long getDutyCycleDelayNanos(long iterationNanos) {
+        if (dutyCycle == 1) {
+            return 0;
+        }
+        return (long) (iterationNanos * ((1 - dutyCycle) / dutyCycle));
+    }
+}
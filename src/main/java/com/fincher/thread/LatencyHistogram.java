@@ -0,0 +1,185 @@
+package com.fincher.thread;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * A concurrent histogram of latencies in nanoseconds with log linear buckets.
+ * 
+ * Each power of two range of values is divided into 8 buckets, so a recorded value is 
+ * reported with a precision of 12.5%.  Recording is lock free and does not allocate.
+ * 
+ * The bucket counts are striped by recording thread, as LongAdder stripes a count, so that 
+ * threads recording concurrently update separate counts rather than contending on one.  
+ * Reading a percentile sums the stripes.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // the number of processors rounded up to a power of two, at most 8 to bound the memory of a
+    // histogram
+    private static final int NUM_STRIPES = numStripes(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicLongArray[] counts = new AtomicLongArray[NUM_STRIPES];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Constructs an empty histogram
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            counts[i] = new AtomicLongArray(NUM_BUCKETS);
+        }
+    }
+
+    /**
+     * Records a latency. Negative values are recorded as zero.
+     * 
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[stripe()].incrementAndGet(bucketIndex(value));
+        count.increment();
+        total.add(value);
+
+        // only written while the maximum grows, so it is rarely contended
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Gets the number of recorded latencies
+     * 
+     * @return The number of recorded latencies
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the sum of all recorded latencies
+     * 
+     * @return The sum in nanoseconds
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Gets the mean of the recorded latencies
+     * 
+     * @return The mean in nanoseconds or zero if nothing has been recorded
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * Gets the largest recorded latency
+     * 
+     * @return The largest latency in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the latency at or below which the given percentage of recorded latencies fall
+     * 
+     * @param percentile The percentile, between 0 and 100
+     * @return The upper bound of the bucket holding the percentile in nanoseconds, or zero if
+     *         nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        Preconditions.checkArgument(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+
+        long[] sums = new long[NUM_BUCKETS];
+        long n = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            for (AtomicLongArray stripe : counts) {
+                sums[i] += stripe.get(i);
+            }
+            n += sums[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(n * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += sums[i];
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears all recorded latencies. Latencies recorded concurrently with a reset may be
+     * partially retained.
+     */
+    public void reset() {
+        for (AtomicLongArray stripe : counts) {
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                stripe.set(i, 0);
+            }
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    /**
+     * Selects the stripe of the calling thread. Threads with consecutive ids, such as the
+     * workers of a pool, use different stripes.
+     */
+    private static int stripe() {
+        return (int) Thread.currentThread().getId() & (NUM_STRIPES - 1);
+    }
+
+    private static int numStripes(int processors) {
+        return processors <= 1 ? 1 : Math.min(8, Integer.highestOneBit(processors - 1) << 1);
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long lowerBound = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return exponent == Long.SIZE - 2 && subBucket == SUB_BUCKETS - 1 ? Long.MAX_VALUE
+                : lowerBound + width - 1;
+    }
+}
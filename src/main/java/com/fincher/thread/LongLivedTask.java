@@ -1,14 +1,22 @@
 package com.fincher.thread;
 
-import java.time.Duration;
-import java.time.Instant;
-import java.util.concurrent.CancellationException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
@@ -48,6 +56,9 @@ import com.google.common.base.Preconditions;
  * 
  * An optional ExceptionListener may be set to be notified of Exceptions
  * 
+ * By default each task runs on its own platform thread.  The task may instead be started 
+ * on a virtual thread, a thread from a supplied ThreadFactory, or an Executor.
+ * 
  * </pre>
  *
  * @author Brian Fincher
@@ -57,23 +68,74 @@ public final class LongLivedTask<T> {
 
     private static final Logger LOG = LoggerFactory.getLogger(LongLivedTask.class);
 
+    private static final ThreadFactory PLATFORM_THREAD_FACTORY = Thread::new;
+
+    private static final long MIN_PUBLISH_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long MAX_PUBLISH_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Bounds the time a cancelled task remains paused after a failure */
+    private static final long MAX_PAUSE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** The iteration start time of a task that is not executing an iteration */
+    static final long NOT_ITERATING = Long.MIN_VALUE;
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(LongLivedTask.class, "state", State.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final Task controllable;
-    private final Runnable runnable;
+    private final Iteration iteration;
     private Consumer<Throwable> exceptionHandler = null;
     private volatile boolean continueAfterException = true;
+    private volatile IdleStrategy idleStrategy = NoOpIdleStrategy.INSTANCE;
+    private int workCount;
+    private volatile FailurePolicy failurePolicy = FailurePolicy.none();
+    private volatile IterationLimit iterationLimit = IterationLimit.unlimited();
+
+    // only accessed by the thread executing an iteration
+    private int consecutiveFailures;
+    private long resumeNanos;
+    private boolean paused;
+    private boolean throttled;
+    private long theoreticalStartNanos;
+    private long reportPeriodStart;
+    private int reportsInPeriod;
+    private long suppressedReports;
 
     private volatile State state = State.INITIAL;
-    private Throwable exception = null;
     private T result = null;
-    private final Lock stateLock = new ReentrantLock();
-    private final Condition stateChangedCondition = stateLock.newCondition();
-    private Thread thread;
+    private ResultBuffer<T> resultBuffer = null;
+    private final CompletableFuture<T> completion = new CompletableFuture<>();
+    private final CountDownLatch exited = new CountDownLatch(1);
+    private final LongLivedTaskStats stats = new LongLivedTaskStats();
+    private volatile Thread thread;
+    private volatile LongLivedTaskGroup group;
+    private final AtomicInteger interruptsPending = new AtomicInteger();
+    private volatile boolean registered;
+    private volatile long iterationStartNanos = NOT_ITERATING;
     private final String name;
 
+    /**
+     * The states of a task. A task moves from INITIAL to RUNNING when started and from RUNNING to
+     * either CANCELLED or TERMINATED, which are final. Transitions are made with compare and set
+     * so that exactly one thread performs each.
+     */
     private enum State {
         INITIAL, RUNNING, CANCELLED, TERMINATED;
     }
 
+    /** A single iteration of the task returning the amount of work performed */
+    @FunctionalInterface
+    private interface Iteration {
+        int run();
+    }
+
     /**
      * Creates a new LongLivedTask
      * 
@@ -97,6 +159,37 @@ public final class LongLivedTask<T> {
         return new LongLivedTask<>(name, task);
     }
 
+    /**
+     * Creates a new LongLivedTask whose iterations report the amount of work performed. Iterations
+     * that perform no work are followed by the task's {@link IdleStrategy}.
+     * 
+     * @param name The name of the thread used to execute the task
+     * @param task To be invoked upon each thread iteration
+     * @return A new LongLovedTask
+     */
+    public static LongLivedTask<Void> create(String name, WorkTask task) {
+        return new LongLivedTask<>(name, task);
+    }
+
+    /**
+     * Creates a new LongLivedTask that processes elements from a queue in batches. Each
+     * iteration drains up to maxBatchSize elements from the source queue and passes them to the
+     * task in a single call. Iterations that find the queue empty do not invoke the task and are
+     * followed by the task's {@link IdleStrategy}, which defaults to a
+     * {@link BackoffIdleStrategy}.
+     * 
+     * @param name The name of the thread used to execute the task
+     * @param source The queue from which elements are drained
+     * @param maxBatchSize The maximum number of elements passed to each iteration
+     * @param task To be invoked with each batch
+     * @param <E> The type of element
+     * @return A new LongLovedTask
+     */
+    public static <E> LongLivedTask<Void> create(String name, BlockingQueue<E> source, int maxBatchSize,
+            BatchTask<E> task) {
+        return new LongLivedTask<>(name, source, maxBatchSize, task);
+    }
+
     /**
      * Constructs a new LongLivedTask
      * 
@@ -106,7 +199,10 @@ public final class LongLivedTask<T> {
     private LongLivedTask(String name, RunnableTask runnable) {
         this.name = name;
         controllable = runnable;
-        this.runnable = runnable;
+        iteration = () -> {
+            runnable.run();
+            return 1;
+        };
     }
 
     /**
@@ -119,9 +215,30 @@ public final class LongLivedTask<T> {
     private LongLivedTask(String name, CallableTask<T> callable) {
         this.name = name;
         controllable = callable;
-        runnable = () -> {
+        iteration = () -> {
             try {
                 result = callable.call();
+                publish(result);
+                return 1;
+            } catch (Exception t) {
+                throw new RuntimeException(t);
+            }
+        };
+    }
+
+    /**
+     * Constructs a new LongLivedTask.
+     * 
+     * @param name The name of the thread used to execute the task
+     * @param task To be invoked upon each thread iteration
+     */
+    @SuppressWarnings("squid:S112")
+    private LongLivedTask(String name, WorkTask task) {
+        this.name = name;
+        controllable = task;
+        iteration = () -> {
+            try {
+                return task.doWork();
             } catch (Exception t) {
                 throw new RuntimeException(t);
             }
@@ -129,19 +246,132 @@ public final class LongLivedTask<T> {
     }
 
     /**
-     * Start the execution of this task
+     * Constructs a new LongLivedTask.
+     * 
+     * @param name The name of the thread used to execute the task
+     * @param source The queue from which elements are drained
+     * @param maxBatchSize The maximum number of elements passed to each iteration
+     * @param task To be invoked with each batch
+     */
+    @SuppressWarnings("squid:S112")
+    private <E> LongLivedTask(String name, BlockingQueue<E> source, int maxBatchSize, BatchTask<E> task) {
+        Preconditions.checkNotNull(source);
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        this.name = name;
+        controllable = task;
+        idleStrategy = new BackoffIdleStrategy();
+
+        List<E> batch = new ArrayList<>(maxBatchSize);
+        iteration = () -> {
+            int count = source.drainTo(batch, maxBatchSize);
+            if (count == 0) {
+                return 0;
+            }
+
+            try {
+                task.process(batch);
+                return count;
+            } catch (Exception t) {
+                throw new RuntimeException(t);
+            } finally {
+                batch.clear();
+            }
+        };
+    }
+
+    /**
+     * Start the execution of this task on a new platform thread
      * 
      * @return A future representing the task
      */
     public Future<T> start() {
+        return start(PLATFORM_THREAD_FACTORY);
+    }
+
+    /**
+     * Start the execution of this task on a new virtual thread
+     * 
+     * @return A future representing the task
+     * @throws UnsupportedOperationException if the runtime does not support virtual threads
+     */
+    public Future<T> startVirtual() {
+        return start(VirtualThreads.requireFactory());
+    }
+
+    /**
+     * Start the execution of this task on a thread created by the given factory. The thread will
+     * be named with the name of this task.
+     * 
+     * @param threadFactory Used to create the thread that executes this task
+     * @return A future representing the task
+     */
+    public Future<T> start(ThreadFactory threadFactory) {
+        Preconditions.checkNotNull(threadFactory);
         Preconditions.checkState(state == State.INITIAL, "Expected state to be INITIAL but was %s", state);
-        thread = new Thread(this::run);
-        thread.setName(name);
-        thread.start();
-        setState(State.RUNNING);
+        Thread newThread = threadFactory.newThread(this::run);
+        Preconditions.checkState(newThread != null, "The thread factory did not create a thread");
+        newThread.setName(name);
+        thread = newThread;
+        transitionToRunning();
+        try {
+            newThread.start();
+        } catch (RuntimeException | Error e) {
+            thread = null;
+            terminate(e);
+            finish();
+            throw e;
+        }
         return new LongLivedTaskFuture();
     }
 
+    /**
+     * Start the execution of this task on the given executor. The iteration loop occupies one of
+     * the executor's threads until this task terminates.
+     * 
+     * @param executor Used to execute this task
+     * @return A future representing the task
+     * @throws RejectedExecutionException if the executor does not accept the task
+     */
+    public Future<T> startOn(Executor executor) {
+        Preconditions.checkNotNull(executor);
+        transitionToRunning();
+        try {
+            executor.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            terminate(e);
+            finish();
+            throw e;
+        }
+        return new LongLivedTaskFuture();
+    }
+
+    /**
+     * Gets a view of the completion of this task. The stage completes normally with the last
+     * result when the task terminates, exceptionally with the causing exception if the task
+     * terminates due to an exception and exceptionally with a CancellationException if the
+     * task is cancelled.
+     * 
+     * @return The completion stage
+     */
+    public CompletionStage<T> getCompletionStage() {
+        return completion.minimalCompletionStage();
+    }
+
+    /**
+     * Streams the result of every iteration to a bounded buffer. Only tasks created from a
+     * CallableTask produce results and null results are not published. When the buffer is full
+     * the iteration loop waits for the consumer to make space. Must be called before the task
+     * is started.
+     * 
+     * @param capacity The capacity of the buffer, rounded up to a power of two
+     * @return The buffer from which results are consumed
+     */
+    public ResultBuffer<T> streamResults(int capacity) {
+        Preconditions.checkState(state == State.INITIAL, "Expected state to be INITIAL but was %s", state);
+        resultBuffer = new ResultBuffer<>(capacity);
+        return resultBuffer;
+    }
+
     /**
      * Specifies if this task should continue after encountering an exception
      * 
@@ -151,6 +381,52 @@ public final class LongLivedTask<T> {
         this.continueAfterException = val;
     }
 
+    /**
+     * Sets the strategy used to wait after an iteration that performed no work. Iterations of
+     * RunnableTasks and CallableTasks always count as having performed work, iterations that
+     * throw an exception count as having performed none. The default strategy never waits
+     * except for batch tasks, which back off while their source queue is empty.
+     * 
+     * The strategy is ignored when this task is executed by a {@link LongLivedTaskGroup}, the
+     * group's carrier threads apply their own strategies.
+     * 
+     * @param idleStrategy The idle strategy
+     */
+    public void setIdleStrategy(IdleStrategy idleStrategy) {
+        Preconditions.checkNotNull(idleStrategy);
+        this.idleStrategy = idleStrategy;
+    }
+
+    /**
+     * Sets the policy that determines how this task responds to repeated failures when it
+     * continues after exceptions. The default policy runs the next iteration immediately and
+     * reports every exception.
+     * 
+     * @param failurePolicy The policy
+     */
+    public void setFailurePolicy(FailurePolicy failurePolicy) {
+        this.failurePolicy = Preconditions.checkNotNull(failurePolicy);
+    }
+
+    /**
+     * Sets a limit on the rate and duty cycle of this task's iterations. The default limit runs
+     * iterations back to back.
+     * 
+     * @param iterationLimit The limit
+     */
+    public void setIterationLimit(IterationLimit iterationLimit) {
+        this.iterationLimit = Preconditions.checkNotNull(iterationLimit);
+    }
+
+    /**
+     * Determines if the circuit breaker of this task's failure policy is open, pausing the task
+     * 
+     * @return True if the breaker is open
+     */
+    public boolean isCircuitOpen() {
+        return failurePolicy.isOpen(stats.getConsecutiveFailures());
+    }
+
     /**
      * Sets a handler to be notified of encountered exceptions
      * 
@@ -160,116 +436,454 @@ public final class LongLivedTask<T> {
         this.exceptionHandler = exceptionHandler;
     }
 
+    /**
+     * Start the execution of this task on the given group. The group's carrier threads
+     * execute one iteration of this task at a time, interleaved with the group's other tasks.
+     * 
+     * @param group Used to execute this task
+     * @return A future representing the task
+     * @throws IllegalStateException if the group has been shut down
+     */
+    public Future<T> start(LongLivedTaskGroup group) {
+        Preconditions.checkNotNull(group);
+        transitionToRunning();
+        this.group = group;
+        try {
+            group.submit(this);
+        } catch (IllegalStateException e) {
+            terminate(e);
+            finish();
+            throw e;
+        }
+        return new LongLivedTaskFuture();
+    }
+
+    /**
+     * Gets the statistics of the iterations of this task
+     * 
+     * @return The statistics
+     */
+    public LongLivedTaskStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Sets the number of iterations per iteration whose duration is measured, rounded up to a
+     * power of two. Every iteration is counted regardless. Defaults to
+     * {@link LongLivedTaskStats#DEFAULT_SAMPLE_INTERVAL}.
+     * 
+     * @param sampleInterval The sample interval, 1 to measure every iteration
+     */
+    public void setStatsSampleInterval(int sampleInterval) {
+        stats.setSampleInterval(sampleInterval);
+    }
+
+    /**
+     * Gets the name of the state of this task
+     * 
+     * @return The state name
+     */
+    String getStateName() {
+        return state.name();
+    }
+
+    /**
+     * Gets the thread executing this task
+     * 
+     * @return The thread, null if no thread is executing this task
+     */
+    Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * Gets the time the current iteration started, recorded only while this task is registered
+     * with the {@link TaskRegistry} and the registry is enabled
+     * 
+     * @return The start time in nanoseconds, NOT_ITERATING if no iteration is executing
+     */
+    long getIterationStartNanos() {
+        return iterationStartNanos;
+    }
+
+    /**
+     * Gets the name of this task
+     * 
+     * @return The name of this task
+     */
+    public String getName() {
+        return name;
+    }
+
     private void run() {
+        if (state != State.RUNNING) {
+            // cancelled before an executor got to this task
+            finish();
+            return;
+        }
 
+        thread = Thread.currentThread();
+        IdleStrategy idle = idleStrategy;
         boolean continueExecution;
         do {
-            try {
-                runnable.run();
-            } catch (RuntimeException re) {
-                if (re.getCause() == null) {
-                    handleException(re);
-                } else {
-                    handleException(re.getCause());
-                }
-            } catch (Throwable t) {
-                handleException(t);
+            continueExecution = iterate();
+            if (continueExecution) {
+                awaitResume();
+                idle.idle(workCount);
+            }
+        } while (continueExecution);
+
+        releaseThread();
+        finish();
+    }
+
+    /**
+     * Determines if this task is still running and should have further iterations executed.
+     * 
+     * @return true if the task is running
+     */
+    boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    /**
+     * Executes a single iteration of this task on the calling thread.
+     * 
+     * @return true if another iteration should be executed
+     */
+    boolean runIteration() {
+        thread = Thread.currentThread();
+        try {
+            return iterate();
+        } finally {
+            releaseThread();
+        }
+    }
+
+    /**
+     * Detaches this task from the executing thread so that a later cancel cannot interrupt the
+     * thread once it has moved on. Waits for an interrupt already in progress to be delivered
+     * and clears it if this task was cancelled.
+     */
+    private void releaseThread() {
+        thread = null;
+        while (interruptsPending.get() != 0) {
+            Thread.onSpinWait();
+        }
+        if (state == State.CANCELLED) {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Gets the time remaining before the next iteration may run following a failed iteration or
+     * due to the iteration limit
+     * 
+     * @return The remaining time in nanoseconds, zero or less if the next iteration may run
+     */
+    long getPauseRemainingNanos() {
+        return paused ? resumeNanos - System.nanoTime() : 0;
+    }
+
+    /**
+     * Waits while the failure policy or iteration limit pauses this task, returning early if it
+     * is cancelled
+     */
+    private void awaitResume() {
+        long remaining;
+        while ((remaining = getPauseRemainingNanos()) > 0 && state == State.RUNNING) {
+            LockSupport.parkNanos(Math.min(remaining, MAX_PAUSE_PARK_NANOS));
+        }
+    }
+
+    /**
+     * Gets the amount of work performed by the last iteration
+     * 
+     * @return The work count
+     */
+    int getWorkCount() {
+        return workCount;
+    }
+
+    private boolean iterate() {
+        boolean sampled = stats.sampleNext();
+        IterationLimit limit = iterationLimit;
+        boolean limited = !limit.isUnlimited();
+        boolean tracked = registered && TaskRegistry.getInstance().isEnabled();
+        long startNanos = sampled || limited || tracked ? System.nanoTime() : 0;
+        if (tracked) {
+            iterationStartNanos = startNanos;
+        }
+
+        workCount = 0;
+        boolean failed = true;
+        try {
+            workCount = iteration.run();
+            failed = false;
+        } catch (RuntimeException re) {
+            if (re.getCause() == null) {
+                handleException(re);
+            } else {
+                handleException(re.getCause());
             }
+        } catch (Throwable t) {
+            handleException(t);
+        }
 
-            continueExecution = controllable.continueExecution();
-        } while (state != State.TERMINATED && state != State.CANCELLED && continueExecution);
+        long endNanos = System.nanoTime();
+        paused = false;
+        if (failed) {
+            stats.exceptionThrown();
+            consecutiveFailures++;
+            resumeNanos = endNanos + failurePolicy.getDelayNanos(consecutiveFailures);
+            paused = true;
+        } else {
+            consecutiveFailures = 0;
+        }
+        if (limited) {
+            throttle(limit, startNanos, endNanos);
+        } else {
+            throttled = false;
+        }
+        stats.setConsecutiveFailures(consecutiveFailures);
+        stats.iterationCompleted(workCount, endNanos);
+
+        boolean continueExecution = controllable.continueExecution();
+        if (sampled) {
+            stats.recordIteration(endNanos - startNanos);
+            stats.recordContinueExecution(System.nanoTime() - endNanos);
+        }
+        if (tracked) {
+            iterationStartNanos = NOT_ITERATING;
+        }
+        return state == State.RUNNING && continueExecution;
+    }
+
+    /**
+     * Charges an iteration against the iteration limit, pausing this task until the limit allows
+     * the next. The rate is enforced with a theoretical start time that advances by one interval
+     * per iteration and may lag the clock by at most the burst.
+     */
+    private void throttle(IterationLimit limit, long startNanos, long endNanos) {
+        long nextNanos = endNanos + limit.getDutyCycleDelayNanos(endNanos - startNanos);
+
+        long interval = limit.getIntervalNanos();
+        if (interval > 0) {
+            long floor = startNanos - limit.getBurstNanos();
+            if (!throttled || theoreticalStartNanos - floor < 0) {
+                theoreticalStartNanos = floor;
+            }
+            theoreticalStartNanos += interval;
+            if (theoreticalStartNanos - nextNanos > 0) {
+                nextNanos = theoreticalStartNanos;
+            }
+        }
+        throttled = true;
 
-        setState(State.TERMINATED);
+        if (nextNanos - endNanos > 0 && (!paused || nextNanos - resumeNanos > 0)) {
+            resumeNanos = nextNanos;
+            paused = true;
+        }
+    }
+
+    /**
+     * Marks this task as terminated after its last iteration.
+     */
+    void finish() {
+        if (STATE.compareAndSet(this, State.RUNNING, State.TERMINATED)) {
+            completion.complete(result);
+        }
+        if (registered) {
+            TaskRegistry.getInstance().unregister(this);
+        }
+        exited.countDown();
 
         LOG.debug("{} terminated", name);
     }
 
+    /**
+     * Marks this task as terminated due to an exception thrown outside of its iteration, for
+     * example by its exception handler or continueExecution method.
+     * 
+     * @param t The exception
+     */
+    void finishExceptionally(Throwable t) {
+        terminate(t);
+        finish();
+    }
+
+    private void publish(T value) {
+        ResultBuffer<T> buffer = resultBuffer;
+        if (buffer == null || value == null) {
+            return;
+        }
+
+        long parkNanos = MIN_PUBLISH_PARK_NANOS;
+        while (!buffer.offer(value)) {
+            if (state != State.RUNNING) {
+                return;
+            }
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos << 1, MAX_PUBLISH_PARK_NANOS);
+        }
+    }
+
     private void handleException(Throwable t) {
-        if (exceptionHandler == null) {
-            LOG.atError().setMessage("{} {}")
-                    .addArgument(name)
-                    .addArgument(t::getMessage);
+        if (shouldReport()) {
+            if (suppressedReports > 0) {
+                LOG.warn("{} {} exceptions were not reported", name, suppressedReports);
+                suppressedReports = 0;
+            }
+
+            if (exceptionHandler == null) {
+                LOG.atError().setMessage("{} {}")
+                        .addArgument(name)
+                        .addArgument(t::getMessage)
+                        .log();
+            } else {
+                exceptionHandler.accept(t);
+            }
         } else {
-            exceptionHandler.accept(t);
+            suppressedReports++;
         }
 
-        if (!continueAfterException) {
-            exception = t;
-            setState(State.TERMINATED);
+        if (!continueAfterException && terminate(t)) {
             LOG.error("{} Execution terminating due to exception", name);
         }
     }
 
-    private void setState(State state) {
-        stateLock.lock();
+    /** Determines if an exception is reported under the failure policy's report limit */
+    private boolean shouldReport() {
+        FailurePolicy policy = failurePolicy;
+        if (policy.getReportLimit() == Integer.MAX_VALUE) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        if (reportsInPeriod == 0 || now - reportPeriodStart >= policy.getReportPeriodNanos()) {
+            reportPeriodStart = now;
+            reportsInPeriod = 0;
+        }
+        return reportsInPeriod++ < policy.getReportLimit();
+    }
+
+    private void transitionToRunning() {
+        if (!STATE.compareAndSet(this, State.INITIAL, State.RUNNING)) {
+            throw new IllegalStateException("Expected state to be INITIAL but was " + state);
+        }
+        registered = TaskRegistry.getInstance().register(this);
+    }
+
+    private boolean terminate(Throwable t) {
+        if (STATE.compareAndSet(this, State.RUNNING, State.TERMINATED)) {
+            completion.completeExceptionally(t);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Waits for the iteration loop of this task to exit. A task that was never started has no
+     * loop to wait for.
+     * 
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     * @return true if the loop has exited
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitExit(long timeout, TimeUnit unit) throws InterruptedException {
+        return state == State.INITIAL || exited.await(timeout, unit);
+    }
+
+    /**
+     * Interrupts the thread executing an iteration of this task, if any
+     */
+    void interrupt() {
+        interruptsPending.incrementAndGet();
         try {
-            this.state = state;
-            stateChangedCondition.signalAll();
+            Thread t = thread;
+            if (t != null) {
+                t.interrupt();
+            }
         } finally {
-            stateLock.unlock();
+            interruptsPending.decrementAndGet();
         }
     }
 
+    /**
+     * Cancels this task
+     * 
+     * @param interruptIfRunning true if the thread executing this task should be interrupted
+     * @return true if the task was cancelled
+     */
+    boolean cancel(boolean interruptIfRunning) {
+        if (!stop()) {
+            return false;
+        }
+
+        if (interruptIfRunning) {
+            interrupt();
+        }
+
+        terminateCancelled();
+        return true;
+    }
+
+    /**
+     * Signals this task to stop after its current iteration without notifying the task. Must be
+     * followed by {@link #terminateCancelled()} if successful.
+     * 
+     * @return true if the task was running and is now cancelled
+     */
+    boolean stop() {
+        if (!STATE.compareAndSet(this, State.RUNNING, State.CANCELLED)) {
+            return false;
+        }
+
+        // a task paused in a group leaves without waiting out its pause
+        LongLivedTaskGroup taskGroup = group;
+        if (taskGroup != null) {
+            taskGroup.wake(this);
+        }
+        return true;
+    }
+
+    /**
+     * Gives a cancelled task the opportunity to clean up and completes its futures
+     */
+    void terminateCancelled() {
+        try {
+            controllable.terminate();
+        } finally {
+            completeCancelled();
+        }
+    }
+
+    /**
+     * Completes the futures of a cancelled task without calling its terminate method
+     */
+    void completeCancelled() {
+        completion.cancel(false);
+    }
+
     private class LongLivedTaskFuture implements Future<T> {
         @Override
         public boolean cancel(boolean interruptIfRunning) {
-            if (isCancelled()) {
-                if (state == State.RUNNING) {
-                    thread.interrupt();
-                    return true;
-                }
-                return false;
-            } else {
-                if (state == State.RUNNING) {
-                    if (interruptIfRunning) {
-                        thread.interrupt();
-                    }
-
-                    controllable.terminate();
-                }
-                setState(State.CANCELLED);
-
-                return true;
-            }
+            return LongLivedTask.this.cancel(interruptIfRunning);
         }
 
         @Override
-        @SuppressWarnings("squid:S899")
         public T get(long timeToWait, TimeUnit unit) throws InterruptedException, ExecutionException {
-            Instant waitUntil = Instant.now().plus(Duration.ofNanos(unit.toNanos(timeToWait)));
-            stateLock.lock();
             try {
-                Instant now = Instant.now();
-                Duration waitTime = Duration.between(now, waitUntil);
-                while (waitTime.compareTo(Duration.ZERO) > 0
-                        && state != State.TERMINATED && state != State.CANCELLED) {
-                    stateChangedCondition.await(waitTime.toNanos(), TimeUnit.NANOSECONDS);
-
-                    now = Instant.now();
-                    waitTime = Duration.between(now, waitUntil);
-                }
-            } finally {
-                stateLock.unlock();
-            }
-
-            switch (state) {
-            case CANCELLED:
-                throw new CancellationException();
-
-            case TERMINATED:
-                if (exception == null) {
-                    return result;
-                } else {
-                    throw new ExecutionException(exception);
-                }
-
-            default:
-                throw new IllegalStateException();
+                return completion.get(timeToWait, unit);
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Timed out waiting for " + name + " to complete", e);
             }
         }
 
+        @Override
         public T get() throws InterruptedException, ExecutionException {
-            return get(Long.MAX_VALUE, TimeUnit.DAYS);
+            return completion.get();
         }
 
         @Override
@@ -0,0 +1,372 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Executes many LongLivedTasks on a fixed number of carrier threads.
+ * 
+ * Each carrier thread takes the next task from a shared FIFO run queue, executes a single
+ * iteration of that task and returns it to the tail of the queue so that tasks are serviced 
+ * round-robin.  A task leaves the group when its continueExecution method returns false, 
+ * when it is cancelled, or when it terminates due to an exception.
+ * 
+ * Iterations should be short and should not block since a blocked iteration occupies
+ * one of the carrier threads.
+ * 
+ * Each carrier thread applies its own IdleStrategy after every iteration, so consecutive
+ * iterations that perform no work cause the carrier to back off.
+ * 
+ * A task paused by its failure policy or iteration limit is held aside until it may resume and
+ * is then returned to the tail of the run queue.  A carrier with no runnable task waits until
+ * the earliest paused task resumes rather than polling the paused tasks.
+ * 
+ * An exception thrown outside of an iteration, by a task's exception handler or 
+ * continueExecution method, terminates that task alone with the exception.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class LongLivedTaskGroup {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LongLivedTaskGroup.class);
+
+    private static final ThreadFactory PLATFORM_THREAD_FACTORY = Thread::new;
+
+    private final String name;
+    private final BlockingQueue<LongLivedTask<?>> runQueue = new LinkedBlockingQueue<>();
+    private final DelayQueue<PausedTask> pausedQueue = new DelayQueue<>();
+    private final Set<LongLivedTask<?>> tasks = ConcurrentHashMap.newKeySet();
+    private final List<Carrier> carriers;
+    private volatile boolean shutdown = false;
+
+    /**
+     * Constructs a new LongLivedTaskGroup that uses platform carrier threads
+     * 
+     * @param name The name of the group. Carrier threads are named after the group
+     * @param numCarrierThreads The number of carrier threads
+     */
+    public LongLivedTaskGroup(String name, int numCarrierThreads) {
+        this(name, numCarrierThreads, PLATFORM_THREAD_FACTORY);
+    }
+
+    /**
+     * Constructs a new LongLivedTaskGroup that uses platform carrier threads
+     * 
+     * @param name The name of the group. Carrier threads are named after the group
+     * @param numCarrierThreads The number of carrier threads
+     * @param idleStrategySupplier Supplies an idle strategy for each carrier thread
+     */
+    public LongLivedTaskGroup(String name, int numCarrierThreads, Supplier<IdleStrategy> idleStrategySupplier) {
+        this(name, numCarrierThreads, PLATFORM_THREAD_FACTORY, idleStrategySupplier);
+    }
+
+    /**
+     * Constructs a new LongLivedTaskGroup
+     * 
+     * @param name The name of the group. Carrier threads are named after the group
+     * @param numCarrierThreads The number of carrier threads
+     * @param threadFactory Used to create the carrier threads
+     */
+    public LongLivedTaskGroup(String name, int numCarrierThreads, ThreadFactory threadFactory) {
+        this(name, numCarrierThreads, threadFactory, () -> NoOpIdleStrategy.INSTANCE);
+    }
+
+    /**
+     * Constructs a new LongLivedTaskGroup
+     * 
+     * @param name The name of the group. Carrier threads are named after the group
+     * @param numCarrierThreads The number of carrier threads
+     * @param threadFactory Used to create the carrier threads
+     * @param idleStrategySupplier Supplies an idle strategy for each carrier thread
+     */
+    public LongLivedTaskGroup(String name, int numCarrierThreads, ThreadFactory threadFactory,
+            Supplier<IdleStrategy> idleStrategySupplier) {
+        Preconditions.checkArgument(numCarrierThreads > 0, "numCarrierThreads must be positive");
+        this.name = name;
+
+        List<Carrier> threads = new ArrayList<>(numCarrierThreads);
+        for (int i = 0; i < numCarrierThreads; i++) {
+            threads.add(new Carrier(threadFactory, name + "_" + i, idleStrategySupplier.get()));
+        }
+        carriers = Collections.unmodifiableList(threads);
+        carriers.forEach(carrier -> carrier.thread.start());
+    }
+
+    /**
+     * Gets the name of this group
+     * 
+     * @return The name of this group
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of tasks currently executing in this group
+     * 
+     * @return The number of tasks
+     */
+    public int getTaskCount() {
+        return tasks.size();
+    }
+
+    /**
+     * Cancels all tasks in this group and stops the carrier threads. Iterations in progress are
+     * allowed to complete.
+     */
+    public void shutdown() {
+        shutdown = true;
+        tasks.forEach(task -> task.cancel(false));
+        carriers.forEach(Carrier::wakeIfWaiting);
+    }
+
+    /**
+     * Determines if this group has been shut down
+     * 
+     * @return true if this group has been shut down
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Waits for the carrier threads to exit after a shutdown
+     * 
+     * @param timeout The maximum time to wait
+     * @return true if all carrier threads exited before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Carrier carrier : carriers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedJoin(carrier.thread, remaining);
+            if (carrier.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a task to the run queue of this group
+     * 
+     * @param task The task
+     * @throws IllegalStateException if this group has been shut down
+     */
+    void submit(LongLivedTask<?> task) {
+        Preconditions.checkState(!shutdown, "The group %s has been shut down", name);
+        tasks.add(task);
+        runQueue.add(task);
+
+        if (shutdown) {
+            // lost a race with shutdown
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Returns a paused task to the run queue before its resume time, used when the task is
+     * cancelled so that it leaves the group without waiting out its pause
+     * 
+     * @param task The task
+     */
+    void wake(LongLivedTask<?> task) {
+        if (pausedQueue.remove(new PausedTask(task, 0))) {
+            runQueue.add(task);
+
+            if (shutdown && runQueue.remove(task)) {
+                // the carriers may already have retired the queued tasks
+                tasks.remove(task);
+                task.finish();
+            }
+        }
+    }
+
+    private void runCarrier(Carrier carrier, IdleStrategy idleStrategy) {
+        while (!shutdown) {
+            LongLivedTask<?> task;
+            carrier.waiting.set(true);
+            try {
+                task = shutdown ? null : nextTask();
+            } catch (InterruptedException e) {
+                // woken by shutdown, or a stray interrupt that is ignored
+                continue;
+            }
+
+            if (!carrier.waiting.compareAndSet(true, false)) {
+                // shutdown is interrupting this carrier, so it must not run the task
+                Thread.interrupted();
+                if (task != null) {
+                    runQueue.add(task);
+                }
+                break;
+            }
+
+            if (task == null) {
+                continue;
+            }
+
+            if (task.isRunning()) {
+                long pauseNanos = task.getPauseRemainingNanos();
+                if (pauseNanos > 0) {
+                    // paused by its failure policy or iteration limit, the carrier moves on to other tasks
+                    pause(task, pauseNanos);
+                    continue;
+                }
+            }
+
+            boolean continueExecution;
+            try {
+                continueExecution = task.isRunning() && task.runIteration();
+            } catch (Throwable t) {
+                LOG.error("{} task {} failed outside of an iteration", name, task.getName(), t);
+                tasks.remove(task);
+                task.finishExceptionally(t);
+                continue;
+            } finally {
+                // an interrupt from cancelling the task must not leak into the next task
+                Thread.interrupted();
+            }
+
+            if (continueExecution) {
+                int workCount = task.getWorkCount();
+                runQueue.add(task);
+                idle(idleStrategy, workCount);
+            } else {
+                tasks.remove(task);
+                task.finish();
+            }
+        }
+
+        // tasks left queued or paused by a shutdown never run another iteration
+        LongLivedTask<?> task;
+        while ((task = runQueue.poll()) != null) {
+            tasks.remove(task);
+            task.finish();
+        }
+        for (PausedTask paused : pausedQueue) {
+            if (pausedQueue.remove(paused)) {
+                tasks.remove(paused.task);
+                paused.task.finish();
+            }
+        }
+
+        LOG.debug("{} carrier {} exiting", name, Thread.currentThread().getName());
+    }
+
+    /**
+     * Takes the next task to execute, first moving paused tasks that may resume to the tail of
+     * the run queue. When no task is runnable the carrier waits no longer than the time until
+     * the earliest paused task resumes.
+     * 
+     * @return The next task or null if the wait ended without a runnable task
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private LongLivedTask<?> nextTask() throws InterruptedException {
+        PausedTask resumed;
+        while ((resumed = pausedQueue.poll()) != null) {
+            runQueue.add(resumed.task);
+        }
+
+        PausedTask earliest = pausedQueue.peek();
+        if (earliest == null) {
+            return runQueue.take();
+        }
+        return runQueue.poll(earliest.getDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    private void idle(IdleStrategy idleStrategy, int workCount) {
+        try {
+            idleStrategy.idle(workCount);
+        } catch (RuntimeException e) {
+            LOG.warn("{} idle strategy failed", name, e);
+        }
+    }
+
+    private void pause(LongLivedTask<?> task, long pauseNanos) {
+        pausedQueue.add(new PausedTask(task, System.nanoTime() + pauseNanos));
+
+        // a cancel that missed the task before it was paused cannot wake it
+        if (!task.isRunning()) {
+            wake(task);
+        }
+    }
+
+    /**
+     * A carrier thread. Shutdown interrupts a carrier only while it waits for a task, so that an
+     * iteration in progress is allowed to complete.
+     */
+    private final class Carrier {
+        private final Thread thread;
+        private final AtomicBoolean waiting = new AtomicBoolean();
+
+        Carrier(ThreadFactory threadFactory, String threadName, IdleStrategy idleStrategy) {
+            thread = threadFactory.newThread(() -> runCarrier(this, idleStrategy));
+            thread.setName(threadName);
+        }
+
+        void wakeIfWaiting() {
+            if (waiting.compareAndSet(true, false)) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * A task held in the paused queue until its resume time. Equality is by task so that a
+     * paused task can be removed when it is woken early.
+     */
+    private static final class PausedTask implements Delayed {
+        private final LongLivedTask<?> task;
+        private final long resumeNanos;
+
+        PausedTask(LongLivedTask<?> task, long resumeNanos) {
+            this.task = task;
+            this.resumeNanos = resumeNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(resumeNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.signum(resumeNanos - ((PausedTask) other).resumeNanos);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PausedTask && ((PausedTask) other).task == task;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(task);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Statistics of the iterations of a LongLivedTask.
+ * 
+ * Every iteration is counted and timestamped.  The duration of an iteration and of the 
+ * following call to continueExecution are only measured for one in every sampleInterval 
+ * iterations, keeping the cost of an unsampled iteration to a single call to nanoTime.  The 
+ * statistics are written by the thread executing an iteration and may be read from any 
+ * thread.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class LongLivedTaskStats {
+
+    /** The default number of iterations per sampled iteration */
+    public static final int DEFAULT_SAMPLE_INTERVAL = 16;
+
+    /** The window over which the iteration rate is computed */
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+    private final LongAdder work = new LongAdder();
+    private final LatencyHistogram iterationLatency = new LatencyHistogram();
+    private final LatencyHistogram continueExecutionLatency = new LatencyHistogram();
+    private final long createdNanos = System.nanoTime();
+    private volatile long lastIterationNanos;
+    private volatile int consecutiveFailures;
+    private volatile int sampleMask = DEFAULT_SAMPLE_INTERVAL - 1;
+
+    // only accessed by the thread executing an iteration
+    private long sequence;
+
+    // written by the thread executing an iteration when a rate window ends
+    private volatile long rateWindowEndNanos = createdNanos;
+    private volatile long rateWindowIterations;
+    private volatile double iterationsPerSecond;
+    private volatile boolean rateComputed;
+
+    /**
+     * Sets the number of iterations per sampled iteration, rounded up to a power of two
+     * 
+     * @param sampleInterval The sample interval, 1 to sample every iteration
+     */
+    void setSampleInterval(int sampleInterval) {
+        Preconditions.checkArgument(sampleInterval > 0 && sampleInterval <= 1 << 30,
+                "sampleInterval must be between 1 and 2^30");
+        int powerOfTwo = sampleInterval == 1 ? 1 : Integer.highestOneBit(sampleInterval - 1) << 1;
+        sampleMask = powerOfTwo - 1;
+    }
+
+    /**
+     * Determines if the next iteration is sampled
+     * 
+     * @return True if the iteration and continueExecution should be timed
+     */
+    boolean sampleNext() {
+        return (sequence++ & sampleMask) == 0;
+    }
+
+    /**
+     * Records the completion of an iteration
+     * 
+     * @param workCount The work performed by the iteration
+     * @param endNanos The time the iteration ended
+     */
+    void iterationCompleted(int workCount, long endNanos) {
+        iterations.increment();
+        if (workCount > 0) {
+            work.add(workCount);
+        }
+        lastIterationNanos = endNanos;
+
+        long windowNanos = endNanos - rateWindowEndNanos;
+        if (windowNanos >= RATE_WINDOW_NANOS) {
+            long count = iterations.sum();
+            iterationsPerSecond = (count - rateWindowIterations) * (double) TimeUnit.SECONDS.toNanos(1) / windowNanos;
+            rateWindowIterations = count;
+            rateWindowEndNanos = endNanos;
+            rateComputed = true;
+        }
+    }
+
+    void recordIteration(long nanos) {
+        iterationLatency.record(nanos);
+    }
+
+    void recordContinueExecution(long nanos) {
+        continueExecutionLatency.record(nanos);
+    }
+
+    void exceptionThrown() {
+        exceptions.increment();
+    }
+
+    void setConsecutiveFailures(int consecutiveFailures) {
+        if (this.consecutiveFailures != consecutiveFailures) {
+            this.consecutiveFailures = consecutiveFailures;
+        }
+    }
+
+    /**
+     * Gets the number of iterations that have thrown an exception since the last iteration that
+     * did not
+     * 
+     * @return The number of consecutive failures
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Gets the number of completed iterations
+     * 
+     * @return The number of iterations
+     */
+    public long getIterationCount() {
+        return iterations.sum();
+    }
+
+    /**
+     * Gets the number of iterations that threw an exception
+     * 
+     * @return The number of exceptions
+     */
+    public long getExceptionCount() {
+        return exceptions.sum();
+    }
+
+    /**
+     * Gets the total work reported by the iterations of a WorkTask or a batch task
+     * 
+     * @return The work count
+     */
+    public long getWorkCount() {
+        return work.sum();
+    }
+
+    /**
+     * Gets the histogram of sampled iteration durations
+     * 
+     * @return The histogram
+     */
+    public LatencyHistogram getIterationLatency() {
+        return iterationLatency;
+    }
+
+    /**
+     * Gets the histogram of sampled durations of the task's continueExecution method
+     * 
+     * @return The histogram
+     */
+    public LatencyHistogram getContinueExecutionLatency() {
+        return continueExecutionLatency;
+    }
+
+    /**
+     * Gets the time since the last iteration completed, or since the task was created if no
+     * iteration has completed. A time that keeps growing indicates a stalled task.
+     * 
+     * @return The time since the last iteration
+     */
+    public Duration getTimeSinceLastIteration() {
+        long last = iterations.sum() == 0 ? createdNanos : lastIterationNanos;
+        return Duration.ofNanos(System.nanoTime() - last);
+    }
+
+    /**
+     * Gets the rate of iterations over the most recently completed window of at least one
+     * second. Windows are completed by iterations, so if no window has completed within the
+     * last second, as for a new or stalled task, the rate since the end of the last window, or
+     * since the task was created, is returned instead. Reading the rate has no side effects.
+     * 
+     * @return The number of iterations per second
+     */
+    public double getIterationsPerSecond() {
+        long windowEnd = rateWindowEndNanos;
+        long elapsed = System.nanoTime() - windowEnd;
+        if (rateComputed && elapsed < RATE_WINDOW_NANOS) {
+            return iterationsPerSecond;
+        }
+        long count = iterations.sum() - rateWindowIterations;
+        return elapsed <= 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "LongLivedTaskStats[iterations=" + getIterationCount() + ", exceptions=" + getExceptionCount()
+                + ", meanIterationMicros=" + iterationLatency.getMean() / 1000
+                + ", sinceLastIteration=" + getTimeSinceLastIteration() + "]";
+    }
+}
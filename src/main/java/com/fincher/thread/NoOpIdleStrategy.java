@@ -0,0 +1,21 @@
+package com.fincher.thread;
+
+/**
+ * An idle strategy that never waits. The next iteration is executed immediately.
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class NoOpIdleStrategy implements IdleStrategy {
+
+    /** The shared instance, this strategy holds no state */
+    public static final NoOpIdleStrategy INSTANCE = new NoOpIdleStrategy();
+
+    private NoOpIdleStrategy() {
+    }
+
+    @Override
+    public void idle(int workCount) {
+        // do not wait
+    }
+}
@@ -0,0 +1,96 @@
+package com.fincher.thread;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Determines what happens to the executions of a fixed rate task that were missed due to a 
+ * pause or an overrun.
+ * 
+ * By default a ScheduledThreadPoolExecutor runs every missed execution back to back once the 
+ * task is able to run again.  The other policies limit or eliminate that burst.  A task 
+ * scheduled with a policy is queued once per execution the policy runs, so missed executions 
+ * that are not run cost nothing, however long the pause.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class OverrunPolicy {
+
+    private static final OverrunPolicy BURST = new OverrunPolicy(Long.MAX_VALUE, false);
+    private static final OverrunPolicy SKIP = new OverrunPolicy(1, false);
+    private static final OverrunPolicy COALESCE = new OverrunPolicy(1, true);
+
+    private final long maxBurst;
+    private final boolean coalesce;
+
+    private OverrunPolicy(long maxBurst, boolean coalesce) {
+        this.maxBurst = maxBurst;
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * Every missed execution is run back to back, the behavior of a ScheduledThreadPoolExecutor
+     * 
+     * @return The policy
+     */
+    public static OverrunPolicy burst() {
+        return BURST;
+    }
+
+    /**
+     * Missed executions are discarded, only the most recently scheduled execution is run
+     * 
+     * @return The policy
+     */
+    public static OverrunPolicy skip() {
+        return SKIP;
+    }
+
+    /**
+     * Missed executions are combined into a single execution that runs as soon as the task is
+     * able to run. The number of executions combined is reported to a {@link FixedRateTask}.
+     * 
+     * @return The policy
+     */
+    public static OverrunPolicy coalesce() {
+        return COALESCE;
+    }
+
+    /**
+     * At most maxBurst of the missed executions are run back to back, the oldest are discarded
+     * 
+     * @param maxBurst The maximum number of executions run back to back
+     * @return The policy
+     */
+    public static OverrunPolicy catchUp(int maxBurst) {
+        Preconditions.checkArgument(maxBurst > 0, "maxBurst must be positive");
+        return new OverrunPolicy(maxBurst, false);
+    }
+
+    /**
+     * Gets the scheduled execution that is run, whose scheduled time the drift is measured from
+     * 
+     * @param scheduledTick The index of the first scheduled execution not yet run or discarded
+     * @param latestDueTick The index of the latest scheduled execution that is due, at least
+     *            scheduledTick
+     * @return The index of the execution that is run
+     */
+    long executedTick(long scheduledTick, long latestDueTick) {
+        return coalesce ? scheduledTick : Math.max(scheduledTick, latestDueTick - maxBurst + 1);
+    }
+
+    /**
+     * Gets the last scheduled execution that is run, discarded or coalesced by the execution
+     * that is run. The next execution is scheduled for the one after it.
+     * 
+     * @param scheduledTick The index of the first scheduled execution not yet run or discarded
+     * @param latestDueTick The index of the latest scheduled execution that is due, at least
+     *            scheduledTick
+     * @return The index of the last execution accounted for
+     */
+    long lastTick(long scheduledTick, long latestDueTick) {
+        return coalesce ? latestDueTick : executedTick(scheduledTick, latestDueTick);
+    }
+}
@@ -0,0 +1,37 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+
+/**
+ * <pre>
+ * A priority and optional deadline that may be attached to a Runnable or Callable submitted 
+ * to a PriorityThreadPool.
+ * 
+ * Tasks with a deadline are ordered by that deadline.  Tasks without a deadline are ordered 
+ * as if they were due at submission, advanced by the pool's aging interval for each level 
+ * of priority.  Tasks that do not implement this interface have a priority of zero and no 
+ * deadline.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public interface PrioritizedTask {
+
+    /**
+     * Gets the priority of this task. Higher priority tasks run first.
+     * 
+     * @return The priority
+     */
+    public int getPriority();
+
+    /**
+     * Gets the deadline of this task relative to its submission
+     * 
+     * @return The deadline or null if this task only has a priority
+     */
+    public default Duration getDeadline() {
+        return null;
+    }
+
+}
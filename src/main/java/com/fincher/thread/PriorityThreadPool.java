@@ -0,0 +1,211 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * A ThreadPool that executes tasks without a delay in earliest deadline first order.
+ * 
+ * Each task submitted through execute, submit, invokeAll or invokeAny is given a virtual 
+ * deadline.  A task implementing PrioritizedTask with a deadline is due that long after 
+ * submission.  Any other task is due at submission less its priority multiplied by the 
+ * aging interval.  Tasks with equal virtual deadlines run in submission order.
+ * 
+ * Because a task's virtual deadline is fixed when it is submitted, a waiting low priority 
+ * task is eventually ahead of all newly submitted higher priority tasks.  A task that is 
+ * N levels lower in priority waits for at most N aging intervals of newer submissions.
+ * 
+ * Delayed and periodic tasks are scheduled as in a ThreadPool and execute on the pool's 
+ * scheduler threads.  Tasks executed in priority order are not included in the pool's queue 
+ * wait and execution time metrics and are not passed to listeners.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public class PriorityThreadPool extends DispatchingThreadPool {
+
+    /** The default aging interval */
+    public static final Duration DEFAULT_AGING_INTERVAL = Duration.ofMillis(100);
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ThreadPoolExecutor priorityExecutor;
+    private final long agingIntervalNanos;
+
+    /**
+     * Constructs a new PriorityThreadPool with the default aging interval
+     * 
+     * @param corePoolSize The number of priority threads and the maximum number of scheduler
+     *            threads
+     */
+    public PriorityThreadPool(int corePoolSize) {
+        this(corePoolSize, DEFAULT_AGING_INTERVAL);
+    }
+
+    /**
+     * Constructs a new PriorityThreadPool
+     * 
+     * @param corePoolSize The number of priority threads and the maximum number of scheduler
+     *            threads
+     * @param agingInterval The amount by which each level of priority advances a task's
+     *            virtual deadline
+     */
+    public PriorityThreadPool(int corePoolSize, Duration agingInterval) {
+        this(corePoolSize, agingInterval, newPriorityExecutor(corePoolSize));
+    }
+
+    /**
+     * Constructs a new PriorityThreadPool
+     * 
+     * @param corePoolSize The number of priority threads and the maximum number of scheduler
+     *            threads
+     * @param agingInterval The amount by which each level of priority advances a task's
+     *            virtual deadline
+     * @param handler The handler used when a task cannot be executed
+     */
+    public PriorityThreadPool(int corePoolSize, Duration agingInterval, RejectedExecutionHandler handler) {
+        this(corePoolSize, agingInterval, handler, newPriorityExecutor(corePoolSize));
+    }
+
+    private PriorityThreadPool(int corePoolSize, Duration agingInterval, ThreadPoolExecutor priorityExecutor) {
+        super(corePoolSize, priorityExecutor);
+        this.priorityExecutor = priorityExecutor;
+        this.agingIntervalNanos = toAgingIntervalNanos(agingInterval);
+    }
+
+    private PriorityThreadPool(int corePoolSize, Duration agingInterval, RejectedExecutionHandler handler,
+            ThreadPoolExecutor priorityExecutor) {
+        super(corePoolSize, handler, priorityExecutor);
+        this.priorityExecutor = priorityExecutor;
+        this.agingIntervalNanos = toAgingIntervalNanos(agingInterval);
+    }
+
+    /**
+     * Submits a task with the given priority
+     * 
+     * @param task The task
+     * @param priority The priority. Higher priority tasks run first.
+     * @param <T> The result type
+     * @return A future representing the pending completion of the task
+     */
+    public <T> Future<T> submit(Callable<T> task, int priority) {
+        Preconditions.checkNotNull(task);
+        PrioritizedFutureTask<T> future = new PrioritizedFutureTask<>(task, priority, null);
+        dispatch(future);
+        return future;
+    }
+
+    /**
+     * Submits a task with the given deadline
+     * 
+     * @param task The task
+     * @param deadline The deadline relative to now
+     * @param <T> The result type
+     * @return A future representing the pending completion of the task
+     */
+    public <T> Future<T> submit(Callable<T> task, Duration deadline) {
+        Preconditions.checkNotNull(task);
+        Preconditions.checkNotNull(deadline);
+        PrioritizedFutureTask<T> future = new PrioritizedFutureTask<>(task, 0, deadline);
+        dispatch(future);
+        return future;
+    }
+
+    /**
+     * Gets the number of tasks waiting to be executed in priority order
+     * 
+     * @return The number of queued tasks
+     */
+    public int getQueuedPriorityTaskCount() {
+        return priorityExecutor.getQueue().size();
+    }
+
+    @Override
+    <T> ImmediateTask<T> newImmediateTask(Runnable runnable, T result) {
+        return new PrioritizedFutureTask<>(runnable, result, runnable);
+    }
+
+    @Override
+    <T> ImmediateTask<T> newImmediateTask(Callable<T> callable) {
+        return new PrioritizedFutureTask<>(callable, callable);
+    }
+
+    @Override
+    List<ImmediateTask<?>> shutdownImmediateExecutorNow() {
+        List<ImmediateTask<?>> tasks = new ArrayList<>();
+        for (Runnable task : priorityExecutor.shutdownNow()) {
+            tasks.add((ImmediateTask<?>) task);
+        }
+        return tasks;
+    }
+
+    private static long toAgingIntervalNanos(Duration agingInterval) {
+        Preconditions.checkArgument(!agingInterval.isNegative() && !agingInterval.isZero(),
+                "agingInterval must be positive");
+        return agingInterval.toNanos();
+    }
+
+    private static ThreadPoolExecutor newPriorityExecutor(int corePoolSize) {
+        return new ThreadPoolExecutor(corePoolSize, corePoolSize, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> new Thread(r, nextThreadName()));
+    }
+
+    /** A future ordered by its virtual deadline and then by its submission sequence */
+    private class PrioritizedFutureTask<T> extends ImmediateTask<T> implements Comparable<PrioritizedFutureTask<?>> {
+
+        private final long virtualDeadline;
+        private final long sequenceNumber = sequence.getAndIncrement();
+
+        PrioritizedFutureTask(Runnable runnable, T result, Object task) {
+            super(runnable, result);
+            this.virtualDeadline = virtualDeadline(task);
+        }
+
+        PrioritizedFutureTask(Callable<T> callable, Object task) {
+            super(callable);
+            this.virtualDeadline = virtualDeadline(task);
+        }
+
+        PrioritizedFutureTask(Callable<T> callable, int priority, Duration deadline) {
+            super(callable);
+            this.virtualDeadline = virtualDeadline(priority, deadline);
+        }
+
+        @Override
+        public int compareTo(PrioritizedFutureTask<?> other) {
+            // compare the difference so that System.nanoTime wrapping is handled
+            long diff = virtualDeadline - other.virtualDeadline;
+            if (diff != 0) {
+                return diff < 0 ? -1 : 1;
+            }
+            return Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+
+        private long virtualDeadline(Object task) {
+            if (task instanceof PrioritizedTask) {
+                PrioritizedTask prioritized = (PrioritizedTask) task;
+                return virtualDeadline(prioritized.getPriority(), prioritized.getDeadline());
+            }
+            return virtualDeadline(0, null);
+        }
+
+        private long virtualDeadline(int priority, Duration deadline) {
+            long now = System.nanoTime();
+            if (deadline != null) {
+                return now + deadline.toNanos();
+            }
+            return now - priority * agingIntervalNanos;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.fincher.thread;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * A bounded, lock free ring buffer of the results of a LongLivedTask's iterations.
+ * 
+ * The buffer has a single producer, the task's iteration loop, and supports a single 
+ * consumer thread at a time.  Consumers should drain results in batches with 
+ * {@link #drain(Consumer, int)}.  When the buffer is full the producing task waits for 
+ * space, applying back pressure to the iteration loop.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ * @param <T> The type of result
+ */
+public final class ResultBuffer<T> {
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(ResultBuffer.class, "head", long.class);
+            TAIL = lookup.findVarHandle(ResultBuffer.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] buffer;
+    private final int mask;
+    private final int capacity;
+
+    // the next index to be consumed, only written by the consumer
+    private volatile long head = 0;
+
+    // the next index to be produced, only written by the producer
+    private volatile long tail = 0;
+
+    /**
+     * Constructs a new ResultBuffer
+     * 
+     * @param capacity The maximum number of results held. Rounded up to a power of two
+     */
+    ResultBuffer(int capacity) {
+        Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30,
+                "capacity must be between 1 and 2^30");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.buffer = new Object[size];
+    }
+
+    /**
+     * Adds a result to the buffer. Must only be called by the producer.
+     * 
+     * @param value The result
+     * @return false if the buffer is full
+     */
+    boolean offer(T value) {
+        long t = tail;
+        if (t - head >= capacity) {
+            return false;
+        }
+
+        buffer[(int) (t & mask)] = value;
+        TAIL.setRelease(this, t + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest result from the buffer
+     * 
+     * @return The oldest result or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long h = head;
+        if (h >= tail) {
+            return null;
+        }
+
+        int index = (int) (h & mask);
+        T value = (T) buffer[index];
+        buffer[index] = null;
+        HEAD.setRelease(this, h + 1);
+        return value;
+    }
+
+    /**
+     * Removes up to the given number of results from the buffer, oldest first, passing each to
+     * the consumer.
+     * 
+     * @param consumer Accepts each removed result
+     * @param maxResults The maximum number of results to remove
+     * @return The number of results removed
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super T> consumer, int maxResults) {
+        long h = head;
+        long available = Math.min(tail - h, maxResults);
+        for (long i = 0; i < available; i++) {
+            int index = (int) ((h + i) & mask);
+            T value = (T) buffer[index];
+            buffer[index] = null;
+            // release each slot before invoking the consumer so the producer can continue
+            HEAD.setRelease(this, h + i + 1);
+            consumer.accept(value);
+        }
+        return (int) available;
+    }
+
+    /**
+     * Gets the number of results currently in the buffer
+     * 
+     * @return The number of results
+     */
+    public int size() {
+        // read head first so that the result is never negative
+        long h = head;
+        return (int) (tail - h);
+    }
+
+    /**
+     * Determines if the buffer is empty
+     * 
+     * @return true if the buffer holds no results
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Gets the maximum number of results the buffer can hold
+     * 
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
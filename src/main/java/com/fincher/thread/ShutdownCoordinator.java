@@ -0,0 +1,162 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Shuts down many LongLivedTasks in parallel within a single drain deadline.
+ * 
+ * Every task is first signalled to stop after its current iteration, which takes effect 
+ * immediately without waiting for any task.  The tasks' terminate methods are then called in 
+ * parallel on a set of daemon threads while in flight iterations drain.  Tasks whose 
+ * iteration loop has not exited, or whose terminate method has not returned, by the drain 
+ * deadline are reported as overrun and their threads are interrupted.  Tasks still running 
+ * after a further force timeout are reported as unresponsive.
+ * 
+ * ShutdownReport report = new ShutdownCoordinator(Duration.ofSeconds(10)).shutdown(pollers);
+ * report.getOverrunTasks().forEach(task -&gt; LOG.warn("{} overran", task.getName()));
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class ShutdownCoordinator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShutdownCoordinator.class);
+
+    private final Duration drainTimeout;
+    private final Duration forceTimeout;
+    private final int parallelism;
+
+    /**
+     * Constructs a new ShutdownCoordinator with a force timeout of one second that calls up to
+     * 16 terminate methods at once
+     * 
+     * @param drainTimeout The time allowed for tasks to finish their iterations and terminate
+     */
+    public ShutdownCoordinator(Duration drainTimeout) {
+        this(drainTimeout, Duration.ofSeconds(1), 16);
+    }
+
+    /**
+     * Constructs a new ShutdownCoordinator
+     * 
+     * @param drainTimeout The time allowed for tasks to finish their iterations and terminate
+     * @param forceTimeout The time allowed for overrun tasks to exit after being interrupted
+     * @param parallelism The maximum number of terminate methods called at once
+     */
+    public ShutdownCoordinator(Duration drainTimeout, Duration forceTimeout, int parallelism) {
+        Preconditions.checkArgument(!drainTimeout.isNegative(), "drainTimeout must not be negative");
+        Preconditions.checkArgument(!forceTimeout.isNegative(), "forceTimeout must not be negative");
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+        this.drainTimeout = drainTimeout;
+        this.forceTimeout = forceTimeout;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Shuts down the given tasks. Tasks that have already completed or were never started are
+     * reported as drained.
+     * 
+     * @param tasks The tasks
+     * @return A report of the shutdown
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     */
+    public ShutdownReport shutdown(Collection<? extends LongLivedTask<?>> tasks) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long drainDeadline = startNanos + drainTimeout.toNanos();
+
+        List<LongLivedTask<?>> stopped = new ArrayList<>();
+        for (LongLivedTask<?> task : tasks) {
+            if (task.stop()) {
+                stopped.add(task);
+            }
+        }
+
+        ThreadPool terminators = ThreadPool.builder(Math.max(1, Math.min(parallelism, stopped.size())))
+                .namePrefix("ShutdownCoordinator")
+                .daemon(true)
+                .build();
+        Map<LongLivedTask<?>, Future<?>> terminations = new IdentityHashMap<>();
+        Map<Runnable, LongLivedTask<?>> terminatedTasks = new IdentityHashMap<>();
+        try {
+            for (LongLivedTask<?> task : stopped) {
+                Future<?> termination = terminators.submit(task::terminateCancelled);
+                terminations.put(task, termination);
+                terminatedTasks.put((Runnable) termination, task);
+            }
+
+            List<LongLivedTask<?>> drained = new ArrayList<>();
+            List<LongLivedTask<?>> overrun = new ArrayList<>();
+            for (LongLivedTask<?> task : tasks) {
+                if (awaitExit(task, drainDeadline)
+                        && awaitTermination(task, terminations.get(task), drainDeadline)) {
+                    drained.add(task);
+                } else {
+                    overrun.add(task);
+                    task.interrupt();
+                }
+            }
+
+            long forceDeadline = System.nanoTime() + forceTimeout.toNanos();
+            List<LongLivedTask<?>> unresponsive = new ArrayList<>();
+            for (LongLivedTask<?> task : overrun) {
+                if (!awaitExit(task, forceDeadline)) {
+                    unresponsive.add(task);
+                }
+            }
+
+            ShutdownReport report = new ShutdownReport(drained, overrun, unresponsive,
+                    Duration.ofNanos(System.nanoTime() - startNanos));
+            if (!overrun.isEmpty()) {
+                LOG.warn("{}", report);
+            }
+            return report;
+        } finally {
+            // interrupts terminate methods still running
+            for (Runnable notStarted : terminators.shutdownNow()) {
+                LongLivedTask<?> task = terminatedTasks.get(notStarted);
+                if (task != null) {
+                    // the task's futures must complete even though it is not given the
+                    // opportunity to clean up
+                    LOG.warn("{} was not terminated before the shutdown timed out", task.getName());
+                    task.completeCancelled();
+                }
+            }
+        }
+    }
+
+    private static boolean awaitExit(LongLivedTask<?> task, long deadline) throws InterruptedException {
+        return task.awaitExit(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean awaitTermination(LongLivedTask<?> task, Future<?> termination, long deadline)
+            throws InterruptedException {
+        if (termination == null) {
+            return true;
+        }
+
+        try {
+            termination.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            LOG.warn("{} failed to terminate", task.getName(), e.getCause());
+        } catch (TimeoutException e) {
+            return false;
+        }
+        return true;
+    }
+}
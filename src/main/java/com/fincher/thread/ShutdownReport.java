@@ -0,0 +1,84 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The outcome of a shutdown by a {@link ShutdownCoordinator}
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class ShutdownReport {
+
+    private final List<LongLivedTask<?>> drainedTasks;
+    private final List<LongLivedTask<?>> overrunTasks;
+    private final List<LongLivedTask<?>> unresponsiveTasks;
+    private final Duration elapsed;
+
+    ShutdownReport(List<LongLivedTask<?>> drainedTasks, List<LongLivedTask<?>> overrunTasks,
+            List<LongLivedTask<?>> unresponsiveTasks, Duration elapsed) {
+        this.drainedTasks = Collections.unmodifiableList(drainedTasks);
+        this.overrunTasks = Collections.unmodifiableList(overrunTasks);
+        this.unresponsiveTasks = Collections.unmodifiableList(unresponsiveTasks);
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Gets the tasks that finished their iterations and terminated within the drain deadline
+     * 
+     * @return The tasks
+     */
+    public List<LongLivedTask<?>> getDrainedTasks() {
+        return drainedTasks;
+    }
+
+    /**
+     * Gets the tasks that did not finish their iterations or terminate within the drain
+     * deadline and were interrupted
+     * 
+     * @return The tasks
+     */
+    public List<LongLivedTask<?>> getOverrunTasks() {
+        return overrunTasks;
+    }
+
+    /**
+     * Gets the overrun tasks whose iteration loop had still not exited after being interrupted
+     * 
+     * @return The tasks
+     */
+    public List<LongLivedTask<?>> getUnresponsiveTasks() {
+        return unresponsiveTasks;
+    }
+
+    /**
+     * Gets the time taken by the shutdown
+     * 
+     * @return The elapsed time
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Determines if every task drained within the deadline
+     * 
+     * @return true if no task overran
+     */
+    public boolean isClean() {
+        return overrunTasks.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ShutdownReport[drained=" + drainedTasks.size() + ", overrun=" + names(overrunTasks)
+                + ", unresponsive=" + names(unresponsiveTasks) + ", elapsed=" + elapsed + "]";
+    }
+
+    private static String names(List<LongLivedTask<?>> tasks) {
+        return tasks.stream().map(LongLivedTask::getName).collect(Collectors.joining(", ", "[", "]"));
+    }
+}
@@ -0,0 +1,313 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Restarts LongLivedTasks that terminate due to an exception.
+ * 
+ * Each child is supervised through a supplier of new task instances, since a terminated task 
+ * cannot be started again.  Instances are started on the supervisor's executor or group, so 
+ * a restart reuses a pooled thread or carrier rather than creating a thread.  Children that 
+ * terminate normally or are cancelled are not restarted.
+ * 
+ * With the ONE_FOR_ONE strategy only the failed child is restarted.  With the ONE_FOR_ALL 
+ * strategy the other children are cancelled and every child is restarted.  A cancelled 
+ * instance may still complete its current iteration after its replacement has started.
+ * 
+ * Restarts are performed by the supervisor's own thread rather than the thread of the failed 
+ * instance, so a slow factory or terminate method does not hold that thread, the 
+ * supervisor's lock or the restarts of other supervisors.  The thread is created by the first 
+ * restart and reused by every later restart until it is shut down with the supervisor.  A 
+ * replacement that cannot be started is treated as a failure of the supervisor rather than 
+ * of the child.
+ * 
+ * If more than maxRestarts restarts occur within the window the supervisor gives up, 
+ * cancelling every child and completing its completion stage exceptionally with the failure 
+ * that exceeded the limit.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class Supervisor implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Supervisor.class);
+
+    /** Determines which children are restarted when a child fails */
+    public enum Strategy {
+        /** Only the failed child is restarted */
+        ONE_FOR_ONE,
+
+        /** Every child is restarted */
+        ONE_FOR_ALL;
+    }
+
+    /** A supervised child and its current instance */
+    private static final class Child {
+        private final Supplier<? extends LongLivedTask<?>> factory;
+        private LongLivedTask<?> current;
+
+        Child(Supplier<? extends LongLivedTask<?>> factory) {
+            this.factory = factory;
+        }
+    }
+
+    private final String name;
+    private final Strategy strategy;
+    private final int maxRestarts;
+    private final long windowNanos;
+    private final Function<LongLivedTask<?>, ?> starter;
+    private final List<Child> children = new ArrayList<>();
+    private final ArrayDeque<Long> restartTimes = new ArrayDeque<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final ThreadPoolExecutor restarter;
+    private long restartCount;
+    private boolean stopped;
+
+    /**
+     * Constructs a new Supervisor that starts children on an executor
+     * 
+     * @param name The name of the supervisor
+     * @param strategy Determines which children are restarted when a child fails
+     * @param maxRestarts The maximum number of restarts within the window
+     * @param window The window over which restarts are counted
+     * @param executor Used to execute the children
+     */
+    public Supervisor(String name, Strategy strategy, int maxRestarts, Duration window, Executor executor) {
+        this(name, strategy, maxRestarts, window, starter(task -> task.startOn(Preconditions.checkNotNull(executor))));
+    }
+
+    /**
+     * Constructs a new Supervisor that starts children on a group
+     * 
+     * @param name The name of the supervisor
+     * @param strategy Determines which children are restarted when a child fails
+     * @param maxRestarts The maximum number of restarts within the window
+     * @param window The window over which restarts are counted
+     * @param group Used to execute the children
+     */
+    public Supervisor(String name, Strategy strategy, int maxRestarts, Duration window, LongLivedTaskGroup group) {
+        this(name, strategy, maxRestarts, window, starter(task -> task.start(Preconditions.checkNotNull(group))));
+    }
+
+    private Supervisor(String name, Strategy strategy, int maxRestarts, Duration window,
+            Function<LongLivedTask<?>, ?> starter) {
+        Preconditions.checkArgument(maxRestarts >= 0, "maxRestarts must not be negative");
+        Preconditions.checkArgument(!window.isNegative() && !window.isZero(), "window must be positive");
+        this.name = Preconditions.checkNotNull(name);
+        this.strategy = Preconditions.checkNotNull(strategy);
+        this.maxRestarts = maxRestarts;
+        this.windowNanos = window.toNanos();
+        this.starter = starter;
+
+        restarter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "Supervisor_" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Disambiguates a starter from an Executor, which is also a functional interface */
+    private static Function<LongLivedTask<?>, ?> starter(Function<LongLivedTask<?>, ?> starter) {
+        return starter;
+    }
+
+    /**
+     * Starts supervising a child, starting its first instance
+     * 
+     * @param factory Creates a new, unstarted instance of the child for each start
+     * @throws IllegalStateException if the supervisor has stopped
+     */
+    public void supervise(Supplier<? extends LongLivedTask<?>> factory) {
+        Preconditions.checkNotNull(factory);
+        Child child = new Child(factory);
+        synchronized (this) {
+            Preconditions.checkState(!stopped, "The supervisor %s has stopped", name);
+            children.add(child);
+        }
+
+        try {
+            startChild(child);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                children.remove(child);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the current instances of the supervised children
+     * 
+     * @return The current instances
+     */
+    public synchronized List<LongLivedTask<?>> getChildren() {
+        List<LongLivedTask<?>> tasks = new ArrayList<>(children.size());
+        for (Child child : children) {
+            if (child.current != null) {
+                tasks.add(child.current);
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Gets the total number of child restarts
+     * 
+     * @return The number of restarts
+     */
+    public synchronized long getRestartCount() {
+        return restartCount;
+    }
+
+    /**
+     * Gets a view of the completion of this supervisor. The stage completes normally when the
+     * supervisor is shut down and exceptionally with the failure of a child if the supervisor
+     * gives up.
+     * 
+     * @return The completion stage
+     */
+    public CompletionStage<Void> getCompletionStage() {
+        return completion.minimalCompletionStage();
+    }
+
+    /**
+     * Stops restarting children and cancels their current instances
+     */
+    public void shutdown() {
+        stop(null);
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    private void startChild(Child child) {
+        LongLivedTask<?> task = child.factory.get();
+        Preconditions.checkState(task != null, "The factory did not create a task");
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            child.current = task;
+        }
+
+        starter.apply(task);
+
+        // registered once started so that an instance that could not be started is not restarted
+        task.getCompletionStage().whenComplete((result, t) -> childCompleted(child, task, t));
+
+        boolean stoppedWhileStarting;
+        synchronized (this) {
+            stoppedWhileStarting = stopped;
+        }
+        if (stoppedWhileStarting) {
+            task.cancel(true);
+        }
+    }
+
+    private void childCompleted(Child child, LongLivedTask<?> task, Throwable t) {
+        Throwable failure = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        if (failure == null || failure instanceof CancellationException) {
+            return;
+        }
+
+        synchronized (this) {
+            if (stopped || child.current != task) {
+                return;
+            }
+
+            long now = System.nanoTime();
+            while (!restartTimes.isEmpty() && now - restartTimes.peekFirst() >= windowNanos) {
+                restartTimes.removeFirst();
+            }
+            if (restartTimes.size() < maxRestarts) {
+                restartTimes.addLast(now);
+                restartCount++;
+                LOG.warn("{} restarting after the failure of {}: {}", name, task.getName(), failure.getMessage());
+                restarter.execute(() -> restart(child, task));
+                return;
+            }
+        }
+
+        LOG.error("{} exceeded {} restarts, giving up after the failure of {}", name, maxRestarts, task.getName(),
+                failure);
+        stop(failure);
+    }
+
+    private void restart(Child failed, LongLivedTask<?> failedTask) {
+        List<Child> restarted;
+        List<LongLivedTask<?>> siblings = new ArrayList<>();
+        synchronized (this) {
+            if (stopped || failed.current != failedTask) {
+                return;
+            }
+
+            if (strategy == Strategy.ONE_FOR_ONE) {
+                restarted = List.of(failed);
+            } else {
+                // a child still being started by supervise is left to it
+                restarted = new ArrayList<>(children.size());
+                for (Child child : children) {
+                    if (child.current != null) {
+                        restarted.add(child);
+                        if (child != failed) {
+                            siblings.add(child.current);
+                        }
+                    }
+                }
+            }
+        }
+
+        siblings.forEach(task -> task.cancel(true));
+        try {
+            for (Child child : restarted) {
+                startChild(child);
+            }
+        } catch (RuntimeException e) {
+            LOG.error("{} unable to restart {}", name, failedTask.getName(), e);
+            stop(e);
+        }
+    }
+
+    private void stop(Throwable failure) {
+        List<LongLivedTask<?>> tasks;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            tasks = getChildren();
+        }
+
+        // restarts are only queued while not stopped, so none are queued after this
+        restarter.shutdown();
+
+        tasks.forEach(task -> task.cancel(true));
+        if (failure == null) {
+            completion.complete(null);
+        } else {
+            completion.completeExceptionally(failure);
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package com.fincher.thread;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * An opt-in registry of live LongLivedTasks and ThreadPools.
+ * 
+ * While enabled, tasks are registered when started and unregistered when they finish, and
+ * pools are registered when built, or when they first execute a task if constructed directly, 
+ * and unregistered when they terminate.  Tasks and pools created while the registry is 
+ * disabled are never registered.  While the registry is enabled, registered tasks and pools 
+ * record when each iteration or task started, the only cost while no snapshot is taken.
+ * 
+ * Disabling the registry stops that recording and hides the registered tasks and pools, 
+ * which are reported again if the registry is enabled again while they are still live.
+ * 
+ * Snapshots report the state, thread and age of the current iteration or task of each entry.
+ * Stacks are captured only for the threads of entries whose age exceeds a threshold, one
+ * thread at a time, rather than with a full thread dump that stops every thread in the JVM.
+ * 
+ * The registry may be registered as a JMX MBean or dumped as text locally:
+ * 
+ * TaskRegistry.getInstance().setEnabled(true);
+ * ...
+ * LOG.warn(TaskRegistry.getInstance().dumpStalled(5000));
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class TaskRegistry implements TaskRegistryMBean {
+
+    private static final TaskRegistry INSTANCE = new TaskRegistry();
+
+    private static final StackTraceElement[] NO_STACK = new StackTraceElement[0];
+
+    private final Set<LongLivedTask<?>> tasks = ConcurrentHashMap.newKeySet();
+    private final Set<ThreadPool> threadPools = ConcurrentHashMap.newKeySet();
+    private volatile boolean enabled = false;
+    private volatile ObjectName objectName;
+
+    /**
+     * What a thread of a task or pool is currently doing
+     */
+    public static final class Activity {
+        private final String threadName;
+        private final Duration age;
+        private final StackTraceElement[] stackTrace;
+
+        Activity(Thread thread, long startNanos, long nowNanos, long stackThresholdNanos) {
+            this.threadName = thread.getName();
+            this.age = Duration.ofNanos(Math.max(0, nowNanos - startNanos));
+            this.stackTrace = nowNanos - startNanos >= stackThresholdNanos ? thread.getStackTrace() : NO_STACK;
+        }
+
+        /**
+         * Gets the name of the thread
+         * 
+         * @return The thread name
+         */
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         * Gets the time since the current iteration or task started
+         * 
+         * @return The age
+         */
+        public Duration getAge() {
+            return age;
+        }
+
+        /**
+         * Gets the stack of the thread, captured only if the age exceeded the threshold of the
+         * snapshot
+         * 
+         * @return The stack, empty if not captured
+         */
+        public StackTraceElement[] getStackTrace() {
+            return stackTrace.clone();
+        }
+
+        private void appendTo(StringBuilder sb, String indent) {
+            sb.append(indent).append(threadName).append(" age=").append(age).append('\n');
+            for (StackTraceElement element : stackTrace) {
+                sb.append(indent).append("    at ").append(element).append('\n');
+            }
+        }
+    }
+
+    /**
+     * A snapshot of a registered LongLivedTask
+     */
+    public static final class TaskInfo {
+        private final String name;
+        private final String state;
+        private final Activity activity;
+        private final LongLivedTaskStats stats;
+
+        TaskInfo(LongLivedTask<?> task, long nowNanos, long stackThresholdNanos) {
+            this.name = task.getName();
+            this.state = task.getStateName();
+            this.stats = task.getStats();
+
+            Thread thread = task.getThread();
+            long startNanos = task.getIterationStartNanos();
+            this.activity = thread == null || startNanos == LongLivedTask.NOT_ITERATING ? null
+                    : new Activity(thread, startNanos, nowNanos, stackThresholdNanos);
+        }
+
+        /**
+         * Gets the name of the task
+         * 
+         * @return The name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the state of the task, one of INITIAL, RUNNING, CANCELLED or TERMINATED
+         * 
+         * @return The state
+         */
+        public String getState() {
+            return state;
+        }
+
+        /**
+         * Gets the current iteration of the task
+         * 
+         * @return The iteration, null if the task is between iterations
+         */
+        public Activity getActivity() {
+            return activity;
+        }
+
+        /**
+         * Gets the statistics of the task
+         * 
+         * @return The live statistics
+         */
+        public LongLivedTaskStats getStats() {
+            return stats;
+        }
+
+        private void appendTo(StringBuilder sb) {
+            sb.append("LongLivedTask ").append(name).append(' ').append(state).append(' ').append(stats)
+                    .append('\n');
+            if (activity != null) {
+                activity.appendTo(sb, "    ");
+            }
+        }
+    }
+
+    /**
+     * A snapshot of a registered ThreadPool
+     */
+    public static final class PoolInfo {
+        private final String name;
+        private final String state;
+        private final int poolSize;
+        private final int activeCount;
+        private final int queueSize;
+        private final long completedTaskCount;
+        private final List<Activity> activities;
+
+        PoolInfo(ThreadPool threadPool, long nowNanos, long stackThresholdNanos) {
+            this.name = threadPool.getName();
+            this.state = threadPool.isTerminated() ? "TERMINATED" : threadPool.isShutdown() ? "SHUTDOWN" : "RUNNING";
+            this.poolSize = threadPool.getPoolSize();
+            this.activeCount = threadPool.getActiveCount();
+            this.queueSize = threadPool.getQueue().size();
+            this.completedTaskCount = threadPool.getCompletedTaskCount();
+
+            List<Activity> list = new ArrayList<>();
+            for (Map.Entry<Thread, Long> entry : threadPool.getRunningTasks().entrySet()) {
+                list.add(new Activity(entry.getKey(), entry.getValue(), nowNanos, stackThresholdNanos));
+            }
+            this.activities = Collections.unmodifiableList(list);
+        }
+
+        /**
+         * Gets the name of the pool, the prefix of its thread names if configured
+         * 
+         * @return The name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the state of the pool, one of RUNNING, SHUTDOWN or TERMINATED
+         * 
+         * @return The state
+         */
+        public String getState() {
+            return state;
+        }
+
+        /**
+         * Gets the number of threads in the pool
+         * 
+         * @return The pool size
+         */
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        /**
+         * Gets the approximate number of threads executing tasks
+         * 
+         * @return The active count
+         */
+        public int getActiveCount() {
+            return activeCount;
+        }
+
+        /**
+         * Gets the number of queued tasks
+         * 
+         * @return The queue size
+         */
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        /**
+         * Gets the approximate number of completed tasks
+         * 
+         * @return The completed task count
+         */
+        public long getCompletedTaskCount() {
+            return completedTaskCount;
+        }
+
+        /**
+         * Gets the tasks currently executing on the pool's threads
+         * 
+         * @return The activities
+         */
+        public List<Activity> getActivities() {
+            return activities;
+        }
+
+        private void appendTo(StringBuilder sb) {
+            sb.append("ThreadPool ").append(name).append(' ').append(state).append(" poolSize=").append(poolSize)
+                    .append(" active=").append(activeCount).append(" queued=").append(queueSize)
+                    .append(" completed=").append(completedTaskCount).append('\n');
+            for (Activity activity : activities) {
+                activity.appendTo(sb, "    ");
+            }
+        }
+    }
+
+    private TaskRegistry() {
+    }
+
+    /**
+     * Gets the registry
+     * 
+     * @return The registry
+     */
+    public static TaskRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the registration of tasks and pools. While disabled the registry
+     * reports no tasks or pools.
+     * 
+     * @param enabled True to enable the registry
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public int getTaskCount() {
+        return liveTasks().size();
+    }
+
+    @Override
+    public int getThreadPoolCount() {
+        return liveThreadPools().size();
+    }
+
+    @Override
+    public int getStalledTaskCount(long thresholdMillis) {
+        long threshold = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        long now = System.nanoTime();
+        int count = 0;
+        for (LongLivedTask<?> task : liveTasks()) {
+            long startNanos = task.getIterationStartNanos();
+            if (startNanos != LongLivedTask.NOT_ITERATING && now - startNanos >= threshold) {
+                count++;
+            }
+        }
+        for (ThreadPool threadPool : liveThreadPools()) {
+            for (long startNanos : threadPool.getRunningTasks().values()) {
+                if (now - startNanos >= threshold) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Takes a snapshot of the registered tasks without capturing stacks
+     * 
+     * @return The snapshot
+     */
+    public List<TaskInfo> getTasks() {
+        return getTasks(null);
+    }
+
+    /**
+     * Takes a snapshot of the registered tasks, capturing the stacks of those whose current
+     * iteration is older than the threshold
+     * 
+     * @param stackThreshold The minimum iteration age whose stack is captured, null for none
+     * @return The snapshot
+     */
+    public List<TaskInfo> getTasks(Duration stackThreshold) {
+        long threshold = toThresholdNanos(stackThreshold);
+        long now = System.nanoTime();
+        Set<LongLivedTask<?>> live = liveTasks();
+        List<TaskInfo> list = new ArrayList<>(live.size());
+        live.forEach(task -> list.add(new TaskInfo(task, now, threshold)));
+        return list;
+    }
+
+    /**
+     * Takes a snapshot of the registered pools without capturing stacks
+     * 
+     * @return The snapshot
+     */
+    public List<PoolInfo> getThreadPools() {
+        return getThreadPools(null);
+    }
+
+    /**
+     * Takes a snapshot of the registered pools, capturing the stacks of threads whose current
+     * task is older than the threshold
+     * 
+     * @param stackThreshold The minimum task age whose stack is captured, null for none
+     * @return The snapshot
+     */
+    public List<PoolInfo> getThreadPools(Duration stackThreshold) {
+        long threshold = toThresholdNanos(stackThreshold);
+        long now = System.nanoTime();
+        Set<ThreadPool> live = liveThreadPools();
+        List<PoolInfo> list = new ArrayList<>(live.size());
+        live.forEach(threadPool -> list.add(new PoolInfo(threadPool, now, threshold)));
+        return list;
+    }
+
+    @Override
+    public String dump() {
+        return dump(null);
+    }
+
+    @Override
+    public String dumpStalled(long thresholdMillis) {
+        Preconditions.checkArgument(thresholdMillis >= 0, "thresholdMillis must not be negative");
+        return dump(Duration.ofMillis(thresholdMillis));
+    }
+
+    /**
+     * Formats a snapshot of the registered tasks and pools as text
+     * 
+     * @param stackThreshold The minimum iteration or task age whose stack is captured, null for
+     *            none
+     * @return The text
+     */
+    public String dump(Duration stackThreshold) {
+        StringBuilder sb = new StringBuilder();
+        getTasks(stackThreshold).forEach(info -> info.appendTo(sb));
+        getThreadPools(stackThreshold).forEach(info -> info.appendTo(sb));
+        return sb.toString();
+    }
+
+    /**
+     * Registers this registry with the platform MBean server under the name
+     * com.fincher.thread:type=TaskRegistry
+     * 
+     * @return The name of the registered MBean
+     * @throws JMException if the MBean cannot be registered
+     */
+    public synchronized ObjectName registerMBean() throws JMException {
+        ObjectName newName = new ObjectName("com.fincher.thread:type=TaskRegistry");
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+        objectName = newName;
+        return newName;
+    }
+
+    /**
+     * Unregisters this registry from the platform MBean server if registered
+     * 
+     * @throws JMException if the MBean cannot be unregistered
+     */
+    public synchronized void unregisterMBean() throws JMException {
+        ObjectName name = objectName;
+        if (name != null) {
+            objectName = null;
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Registers a task if the registry is enabled
+     * 
+     * @param task The task
+     * @return True if the task was registered
+     */
+    boolean register(LongLivedTask<?> task) {
+        if (!enabled) {
+            return false;
+        }
+        tasks.add(task);
+        return true;
+    }
+
+    void unregister(LongLivedTask<?> task) {
+        tasks.remove(task);
+    }
+
+    /**
+     * Registers a pool if the registry is enabled
+     * 
+     * @param threadPool The pool
+     * @return True if the pool was registered
+     */
+    boolean register(ThreadPool threadPool) {
+        if (!enabled) {
+            return false;
+        }
+        threadPools.add(threadPool);
+        return true;
+    }
+
+    void unregister(ThreadPool threadPool) {
+        threadPools.remove(threadPool);
+    }
+
+    private Set<LongLivedTask<?>> liveTasks() {
+        return enabled ? tasks : Collections.emptySet();
+    }
+
+    private Set<ThreadPool> liveThreadPools() {
+        return enabled ? threadPools : Collections.emptySet();
+    }
+
+    private static long toThresholdNanos(Duration stackThreshold) {
+        if (stackThreshold == null) {
+            return Long.MAX_VALUE;
+        }
+        Preconditions.checkArgument(!stackThreshold.isNegative(), "stackThreshold must not be negative");
+        return stackThreshold.toNanos();
+    }
+}
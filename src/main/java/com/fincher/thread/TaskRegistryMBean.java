@@ -0,0 +1,25 @@
+package com.fincher.thread;
+
+/**
+ * JMX view of the TaskRegistry. Thresholds are in milliseconds.
+ * 
+ * @author Brian Fincher
+ *
+ */
+public interface TaskRegistryMBean {
+
+    public boolean isEnabled();
+
+    public void setEnabled(boolean enabled);
+
+    public int getTaskCount();
+
+    public int getThreadPoolCount();
+
+    public int getStalledTaskCount(long thresholdMillis);
+
+    public String dump();
+
+    public String dumpStalled(long thresholdMillis);
+
+}
@@ -0,0 +1,376 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Owns a set of LongLivedTasks and tasks submitted to executors so that they can be 
+ * cancelled and joined together.
+ * 
+ * With the FAIL_FAST policy the first task to fail cancels every other task in the scope.  
+ * With the ALL_COMPLETE policy tasks run until they complete regardless of the failure of 
+ * other tasks.  A task fails if it terminates with an exception, cancelled tasks do not fail.
+ * 
+ * try (TaskScope scope = new TaskScope(TaskScope.Policy.FAIL_FAST)) {
+ *     scope.start(LongLivedTask.create("reader", reader));
+ *     scope.submit(threadPool, () -&gt; loadCache());
+ *     scope.join(Duration.ofSeconds(30));
+ * }
+ * 
+ * Closing the scope cancels any tasks still running.
+ * 
+ * A task submitted to a ThreadPool that is rejected, including by a handler that does not 
+ * throw, is cancelled.  Other executors must not discard tasks without throwing, since a 
+ * discarded task never completes and join would not return.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class TaskScope implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaskScope.class);
+
+    /** Determines how the failure of a task affects the other tasks in a scope */
+    public enum Policy {
+        /** The first failure cancels all other tasks and completes the join */
+        FAIL_FAST,
+
+        /** Tasks run to completion regardless of failures */
+        ALL_COMPLETE;
+    }
+
+    private final Policy policy;
+    private final Set<Future<?>> running = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition completed = lock.newCondition();
+    private final List<Throwable> failures = new ArrayList<>();
+    private int pending;
+    private boolean failedFast;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a new TaskScope
+     * 
+     * @param policy Determines how the failure of a task affects the other tasks
+     */
+    public TaskScope(Policy policy) {
+        this.policy = Preconditions.checkNotNull(policy);
+    }
+
+    /**
+     * Starts a task on a new platform thread owned by this scope
+     * 
+     * @param task The task
+     * @param <T> The result type
+     * @return A future representing the task
+     */
+    public <T> Future<T> start(LongLivedTask<T> task) {
+        return add(task, task::start);
+    }
+
+    /**
+     * Starts a task on an executor, owned by this scope
+     * 
+     * @param task The task
+     * @param executor Used to execute the task
+     * @param <T> The result type
+     * @return A future representing the task
+     */
+    public <T> Future<T> start(LongLivedTask<T> task, Executor executor) {
+        Preconditions.checkNotNull(executor);
+        return add(task, () -> task.startOn(executor));
+    }
+
+    /**
+     * Starts a task on a group, owned by this scope
+     * 
+     * @param task The task
+     * @param group Used to execute the task
+     * @param <T> The result type
+     * @return A future representing the task
+     */
+    public <T> Future<T> start(LongLivedTask<T> task, LongLivedTaskGroup group) {
+        Preconditions.checkNotNull(group);
+        return add(task, () -> task.start(group));
+    }
+
+    /**
+     * A task submitted to an executor. A ThreadPool exits the task if it will never run, for
+     * example when it is discarded by the rejected execution handler, which cancels it.
+     */
+    private final class SubmittedTask<T> extends FutureTask<T> implements ThreadPool.ExitingCommand {
+
+        SubmittedTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        protected void done() {
+            running.remove(this);
+            taskCompleted(getFailure(this));
+        }
+
+        @Override
+        public void exit() {
+            cancel(false);
+        }
+    }
+
+    /**
+     * Submits a task to an executor, owned by this scope. The executor must not discard the
+     * task without throwing unless it is a ThreadPool.
+     * 
+     * @param executor Used to execute the task
+     * @param task The task
+     * @param <T> The result type
+     * @return A future representing the task
+     */
+    public <T> Future<T> submit(Executor executor, Callable<T> task) {
+        Preconditions.checkNotNull(executor);
+        Preconditions.checkNotNull(task);
+        SubmittedTask<T> future = new SubmittedTask<>(task);
+
+        taskAdded();
+        try {
+            executor.execute(future);
+        } catch (RuntimeException e) {
+            future.cancel(false);
+            throw e;
+        }
+        track(future);
+        return future;
+    }
+
+    /**
+     * Cancels every task in this scope, interrupting them if they are running. Tasks added
+     * afterward are rejected. An exception thrown while cancelling a task, for example by a
+     * LongLivedTask's terminate method, is logged and does not prevent the cancellation of the
+     * other tasks.
+     */
+    public void cancelAll() {
+        lock.lock();
+        try {
+            cancelled = true;
+        } finally {
+            lock.unlock();
+        }
+
+        for (Future<?> future : running) {
+            try {
+                future.cancel(true);
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to cancel a task", e);
+            }
+        }
+    }
+
+    /**
+     * Waits for every task in this scope to complete, or with the FAIL_FAST policy for the
+     * first task to fail
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if a task failed, with the first failure as the cause
+     */
+    public void join() throws InterruptedException, ExecutionException {
+        lock.lock();
+        try {
+            while (!isJoined()) {
+                completed.await();
+            }
+            throwFirstFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to a single deadline for every task in this scope to complete, or with the
+     * FAIL_FAST policy for the first task to fail. Tasks that have not completed by the deadline
+     * continue to run.
+     * 
+     * @param timeout The maximum time to wait for all tasks
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if a task failed, with the first failure as the cause
+     * @throws TimeoutException if the tasks did not complete before the deadline
+     */
+    public void join(Duration timeout) throws InterruptedException, ExecutionException, TimeoutException {
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            while (!isJoined()) {
+                if (remaining <= 0) {
+                    throw new TimeoutException(pending + " tasks did not complete within " + timeout);
+                }
+                remaining = completed.awaitNanos(remaining);
+            }
+            throwFirstFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of tasks in this scope that have not completed
+     * 
+     * @return The number of tasks
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the failures of tasks in this scope in the order they occurred
+     * 
+     * @return The failures
+     */
+    public List<Throwable> getFailures() {
+        lock.lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(failures));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels every task in this scope that has not completed
+     */
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    private <T> Future<T> add(LongLivedTask<T> task, Supplier<Future<T>> starter) {
+        Preconditions.checkNotNull(task);
+        taskAdded();
+
+        // a task that was already started or that could not be started is not owned by this
+        // scope, the exception is thrown to the caller rather than recorded as a failure
+        Future<T> future;
+        try {
+            future = starter.get();
+        } catch (RuntimeException | Error e) {
+            taskCompleted(null);
+            throw e;
+        }
+
+        track(future);
+        task.getCompletionStage().whenComplete((result, t) -> {
+            running.remove(future);
+            taskCompleted(unwrap(t));
+        });
+        return future;
+    }
+
+    /** Tracks a running task so that it can be cancelled, including by a concurrent cancelAll */
+    private void track(Future<?> future) {
+        running.add(future);
+        if (future.isDone()) {
+            running.remove(future);
+        } else if (cancelled) {
+            future.cancel(true);
+        }
+    }
+
+    private void taskAdded() {
+        lock.lock();
+        try {
+            Preconditions.checkState(!cancelled, "The scope has been cancelled");
+            pending++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void taskCompleted(Throwable failure) {
+        boolean cancelOthers;
+        lock.lock();
+        try {
+            pending--;
+            cancelOthers = failure != null && failures.isEmpty() && policy == Policy.FAIL_FAST;
+            if (failure != null) {
+                failures.add(failure);
+            }
+            completed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (cancelOthers) {
+            try {
+                cancelAll();
+            } finally {
+                // a fail fast join returns once the other tasks have been cancelled, or if
+                // cancelling them failed
+                lock.lock();
+                try {
+                    failedFast = true;
+                    completed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private boolean isJoined() {
+        return pending == 0 || failedFast;
+    }
+
+    private void throwFirstFailure() throws ExecutionException {
+        if (!failures.isEmpty()) {
+            ExecutionException e = new ExecutionException(failures.get(0));
+            for (int i = 1; i < failures.size(); i++) {
+                e.addSuppressed(failures.get(i));
+            }
+            throw e;
+        }
+    }
+
+    private static Throwable getFailure(Future<?> future) {
+        if (future.isCancelled()) {
+            return null;
+        }
+        try {
+            future.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        return cause instanceof CancellationException ? null : cause;
+    }
+}
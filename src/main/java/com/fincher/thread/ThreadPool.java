@@ -1,31 +1,734 @@
 package com.fincher.thread;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.JMException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
 public class ThreadPool extends ScheduledThreadPoolExecutor {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ThreadPool.class);
+
+    /** The start time of a task that was not timed when it started */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private static final ThreadLocal<long[]> taskStartNanos = ThreadLocal.withInitial(() -> new long[] { NOT_TIMED });
+
     private static class ThreadPoolThreadFactory implements ThreadFactory {
         protected static AtomicInteger nextId = new AtomicInteger(1);
 
+        private final String namePrefix;
+        private final AtomicInteger nextPoolId = new AtomicInteger(1);
+        private final boolean daemon;
+        private final int priority;
+        private final long stackSize;
+        private final Thread.UncaughtExceptionHandler uncaughtExceptionHandler;
+        private final Runnable threadInitializer;
+        private final ThreadFactory virtualThreadFactory;
+        private final AtomicInteger nextWorker = new AtomicInteger();
+        private volatile WorkerPlacement placement;
+
+        ThreadPoolThreadFactory() {
+            this(new Builder(1));
+        }
+
+        ThreadPoolThreadFactory(Builder builder) {
+            this.namePrefix = builder.namePrefix;
+            this.daemon = builder.daemon;
+            this.priority = builder.priority;
+            this.stackSize = builder.stackSize;
+            this.uncaughtExceptionHandler = builder.uncaughtExceptionHandler;
+            this.threadInitializer = builder.threadInitializer;
+            this.virtualThreadFactory = builder.virtualThreads ? VirtualThreads.requireFactory() : null;
+            this.placement = builder.placement;
+        }
+
         @Override
         public Thread newThread(Runnable r) {
-            return new Thread(r, "ThreadPool_" + nextId.getAndIncrement());
+            String name = namePrefix == null ? nextThreadName() : namePrefix + "_" + nextPoolId.getAndIncrement();
+
+            Thread thread;
+            if (virtualThreadFactory != null) {
+                thread = virtualThreadFactory.newThread(initialize(r));
+                thread.setName(name);
+            } else {
+                thread = new Thread(null, initialize(r), name, stackSize);
+                thread.setDaemon(daemon);
+                thread.setPriority(priority);
+            }
+
+            if (uncaughtExceptionHandler != null) {
+                thread.setUncaughtExceptionHandler(uncaughtExceptionHandler);
+            }
+            return thread;
+        }
+
+        /** Wraps a worker so that it applies its placement and initializer when it starts */
+        private Runnable initialize(Runnable r) {
+            WorkerPlacement workerPlacement = placement;
+            if (workerPlacement == WorkerPlacement.none() && threadInitializer == null) {
+                return r;
+            }
+
+            int worker = nextWorker.getAndIncrement();
+            return () -> {
+                workerPlacement.apply(worker);
+                if (threadInitializer != null) {
+                    try {
+                        threadInitializer.run();
+                    } catch (RuntimeException e) {
+                        LOG.warn("Thread initializer failed for {}", Thread.currentThread().getName(), e);
+                    }
+                }
+                r.run();
+            };
+        }
+    }
+
+    /**
+     * <pre>
+     * Builds a ThreadPool whose threads have configured attributes.
+     * 
+     * By default threads are non-daemon platform threads of normal priority named 
+     * ThreadPool_N, where N is shared by all pools.
+     * </pre>
+     * 
+     * @author Brian Fincher
+     *
+     */
+    public static final class Builder {
+        private final int corePoolSize;
+        private String namePrefix;
+        private boolean daemon;
+        private int priority = Thread.NORM_PRIORITY;
+        private long stackSize;
+        private Thread.UncaughtExceptionHandler uncaughtExceptionHandler;
+        private Runnable threadInitializer;
+        private boolean virtualThreads;
+        private WorkerPlacement placement = WorkerPlacement.none();
+        private RejectedExecutionHandler rejectedExecutionHandler = new ThreadPoolExecutor.AbortPolicy();
+        private boolean metrics;
+
+        private Builder(int corePoolSize) {
+            Preconditions.checkArgument(corePoolSize >= 0, "corePoolSize must not be negative");
+            this.corePoolSize = corePoolSize;
+        }
+
+        /**
+         * Sets the prefix of thread names. Threads are named &lt;prefix&gt;_N where N is
+         * numbered from 1 for each pool.
+         * 
+         * @param namePrefix The prefix
+         * @return This builder
+         */
+        public Builder namePrefix(String namePrefix) {
+            Preconditions.checkArgument(namePrefix != null && !namePrefix.isEmpty(), "namePrefix must not be empty");
+            this.namePrefix = namePrefix;
+            return this;
+        }
+
+        /**
+         * Sets if threads are daemon threads. Virtual threads are always daemon threads.
+         * 
+         * @param daemon True for daemon threads
+         * @return This builder
+         */
+        public Builder daemon(boolean daemon) {
+            this.daemon = daemon;
+            return this;
+        }
+
+        /**
+         * Sets the priority of threads. Ignored for virtual threads.
+         * 
+         * @param priority The priority
+         * @return This builder
+         */
+        public Builder priority(int priority) {
+            Preconditions.checkArgument(priority >= Thread.MIN_PRIORITY && priority <= Thread.MAX_PRIORITY,
+                    "priority must be between %s and %s", Thread.MIN_PRIORITY, Thread.MAX_PRIORITY);
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * Sets the requested stack size of threads. The platform may round or ignore the value.
+         * 
+         * @param stackSize The stack size in bytes or zero for the platform default
+         * @return This builder
+         */
+        public Builder stackSize(long stackSize) {
+            Preconditions.checkArgument(stackSize >= 0, "stackSize must not be negative");
+            this.stackSize = stackSize;
+            return this;
+        }
+
+        /**
+         * Sets the handler for exceptions that terminate a thread
+         * 
+         * @param handler The handler
+         * @return This builder
+         */
+        public Builder uncaughtExceptionHandler(Thread.UncaughtExceptionHandler handler) {
+            this.uncaughtExceptionHandler = Preconditions.checkNotNull(handler);
+            return this;
+        }
+
+        /**
+         * Sets an action run by each thread when it starts, before it executes any task, for
+         * example to initialize thread local state. Exceptions thrown by the action are logged.
+         * 
+         * @param threadInitializer The action
+         * @return This builder
+         */
+        public Builder threadInitializer(Runnable threadInitializer) {
+            this.threadInitializer = Preconditions.checkNotNull(threadInitializer);
+            return this;
+        }
+
+        /**
+         * Sets if the pool's threads are virtual threads, which requires Java 21 or later
+         * 
+         * @param virtualThreads True for virtual threads
+         * @return This builder
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Sets the placement of the pool's threads. Not supported for virtual threads.
+         * 
+         * @param placement The placement
+         * @return This builder
+         */
+        public Builder workerPlacement(WorkerPlacement placement) {
+            this.placement = Preconditions.checkNotNull(placement);
+            return this;
+        }
+
+        /**
+         * Sets the handler used when a task cannot be executed
+         * 
+         * @param handler The handler
+         * @return This builder
+         */
+        public Builder rejectedExecutionHandler(RejectedExecutionHandler handler) {
+            this.rejectedExecutionHandler = Preconditions.checkNotNull(handler);
+            return this;
+        }
+
+        /**
+         * Sets whether the pool records metrics. The metrics' counters and histograms are
+         * striped so that workers do not contend on them, but recording them times every task.
+         * Without metrics that timing and those updates are removed from every task while no
+         * listener is added. Defaults to false.
+         * 
+         * @param metrics True to enable metrics
+         * @return This builder
+         */
+        public Builder metrics(boolean metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Builds the pool
+         * 
+         * @return The pool
+         * @throws UnsupportedOperationException if virtual threads are requested and the
+         *             runtime does not support them
+         */
+        public ThreadPool build() {
+            Preconditions.checkState(!virtualThreads || (stackSize == 0 && placement == WorkerPlacement.none()),
+                    "The stack size and placement of virtual threads cannot be set");
+            ThreadPool threadPool = new ThreadPool(this);
+            threadPool.register();
+            return threadPool;
+        }
+    }
+
+    /** Counts rejections before delegating to the user's handler */
+    private static class InstrumentedRejectedExecutionHandler implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler delegate;
+
+        InstrumentedRejectedExecutionHandler(RejectedExecutionHandler delegate) {
+            this.delegate = Preconditions.checkNotNull(delegate);
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor instanceof ThreadPool) {
+                ((ThreadPool) executor).taskRejected(r);
+            }
+            try {
+                delegate.rejectedExecution(r, executor);
+            } finally {
+                if (r instanceof ExitingTask) {
+                    // unless the handler ran the command it never will
+                    ((ExitingTask<?>) r).command.exit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Aborts the submission of a task that was not admitted before the task is queued
+     */
+    private static final class NotAdmittedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final transient RunnableScheduledFuture<?> task;
+
+        NotAdmittedException(RunnableScheduledFuture<?> task) {
+            super(null, null, false, false);
+            this.task = task;
+        }
+    }
+
+    /**
+     * A command that is told when it has run or will never run, because its queued task was
+     * cancelled, removed, rejected by a handler that does not throw or drained by shutdownNow
+     */
+    interface ExitingCommand extends Runnable {
+
+        /** Called when this command has run or will never run. May be called more than once. */
+        void exit();
+
+        /**
+         * Determines if the command is one execution of a periodic task, so that its queued
+         * task is handled as a periodic task, for example on shutdown
+         * 
+         * @return true if the command is one execution of a periodic task
+         */
+        default boolean isPeriodic() {
+            return false;
+        }
+    }
+
+    /** A batch of tasks submitted by submitBatch and the number of its runners not yet exited */
+    private static final class Batch<V> {
+        private final List<FutureTask<V>> futures;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger runners = new AtomicInteger();
+
+        Batch(List<FutureTask<V>> futures) {
+            this.futures = futures;
+        }
+
+        void run() {
+            for (int i = next.getAndIncrement(); i < futures.size(); i = next.getAndIncrement()) {
+                futures.get(i).run();
+            }
+        }
+
+        /** Cancels the tasks no runner has started once every runner has exited */
+        void runnerExited() {
+            if (runners.decrementAndGet() == 0) {
+                futures.forEach(future -> future.cancel(false));
+            }
+        }
+    }
+
+    /** Runs tasks from a batch until none remain */
+    private static final class BatchRunner implements ExitingCommand {
+        private final Batch<?> batch;
+        private final AtomicBoolean exited = new AtomicBoolean();
+
+        BatchRunner(Batch<?> batch) {
+            this.batch = batch;
+            batch.runners.incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            try {
+                batch.run();
+            } finally {
+                exit();
+            }
+        }
+
+        @Override
+        public void exit() {
+            if (exited.compareAndSet(false, true)) {
+                batch.runnerExited();
+            }
+        }
+    }
+
+    /**
+     * The queued task of an ExitingCommand. Cancelling, removing, rejecting or draining the task
+     * exits the command, so that for example a batch whose runners will never run is cancelled.
+     */
+    private static final class ExitingTask<V> implements RunnableScheduledFuture<V> {
+        private final RunnableScheduledFuture<V> task;
+        private final ExitingCommand command;
+
+        ExitingTask(RunnableScheduledFuture<V> task, ExitingCommand command) {
+            this.task = task;
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+            if (task.isCancelled()) {
+                command.exit();
+            }
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return command.isPeriodic();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return task.getDelay(unit);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return task.compareTo(other);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = task.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                command.exit();
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return task.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return task.isDone();
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            return task.get();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return task.get(timeout, unit);
+        }
+    }
+
+    /** The most recent command scheduled for a key */
+    private static final class LatestCommand implements Callable<Void> {
+        private volatile Runnable command;
+
+        LatestCommand(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public Void call() {
+            command.run();
+            return null;
+        }
+    }
+
+    /**
+     * A task scheduled by key. Later schedules for the key replace the command until the task
+     * starts. The task is cancelled, and no longer coalesces, if its queued task will never run.
+     */
+    private final class CoalescedTask extends FutureTask<Void> implements ScheduledFuture<Void>, ExitingCommand {
+        private final Object key;
+        private final LatestCommand latest;
+        private final long dueNanos;
+        private volatile ScheduledFuture<?> scheduled;
+
+        CoalescedTask(Object key, Runnable command, long delayNanos) {
+            this(key, new LatestCommand(command), delayNanos);
+        }
+
+        private CoalescedTask(Object key, LatestCommand latest, long delayNanos) {
+            super(latest);
+            this.key = key;
+            this.latest = latest;
+            this.dueNanos = System.nanoTime() + delayNanos;
+        }
+
+        @Override
+        public void run() {
+            // remove before the command is read so that a replacement is either run by this
+            // task or creates a new task
+            coalescedTasks.remove(key, this);
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            coalescedTasks.remove(key, this);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            ScheduledFuture<?> future = scheduled;
+            if (cancelled && future != null) {
+                future.cancel(false);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public void exit() {
+            cancel(false);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /** Runs one execution of a fixed rate task scheduled with an overrun policy */
+    private static final class FixedRateExecution implements Callable<Void> {
+        private final FixedRateTask task;
+        private long missedExecutions;
+        private long driftNanos;
+
+        FixedRateExecution(FixedRateTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public Void call() {
+            task.run(missedExecutions, Duration.ofNanos(driftNanos));
+            return null;
+        }
+    }
+
+    /**
+     * A fixed rate task scheduled with an overrun policy. Rather than being scheduled at a fixed
+     * rate, each execution schedules a one shot task for the next execution the policy runs,
+     * computed from the current time, so missed executions the policy does not run are never
+     * queued. The task stops when an execution throws, when it is cancelled or when the pool
+     * is shut down.
+     */
+    private final class OverrunTask extends FutureTask<Void> implements ScheduledFuture<Void>, ExitingCommand {
+        private final FixedRateExecution execution;
+        private final OverrunPolicy policy;
+        private final long startNanos;
+        private final long periodNanos;
+
+        // only accessed by the thread running an execution, or scheduling the first
+        private long nextTick;
+
+        // guarded by this
+        private ScheduledFuture<?> scheduled;
+
+        private volatile long dueNanos;
+
+        OverrunTask(FixedRateTask task, OverrunPolicy policy, long startNanos, long periodNanos) {
+            this(new FixedRateExecution(task), policy, startNanos, periodNanos);
+        }
+
+        private OverrunTask(FixedRateExecution execution, OverrunPolicy policy, long startNanos, long periodNanos) {
+            super(execution);
+            this.execution = execution;
+            this.policy = Preconditions.checkNotNull(policy);
+            this.startNanos = startNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            long scheduledTick = nextTick;
+            long latestDueTick = Math.max(scheduledTick, (now - startNanos) / periodNanos);
+            long executedTick = policy.executedTick(scheduledTick, latestDueTick);
+            long lastTick = policy.lastTick(scheduledTick, latestDueTick);
+            execution.missedExecutions = lastTick - scheduledTick;
+            execution.driftNanos = Math.max(0, now - (startNanos + executedTick * periodNanos));
+
+            if (runAndReset()) {
+                nextTick = lastTick + 1;
+                if (isShutdown()) {
+                    cancel(false);
+                } else {
+                    scheduleNext();
+                }
+            }
+        }
+
+        /**
+         * Schedules the execution for nextTick. Scheduling holds the lock so that an execution
+         * that starts before the previous execution has recorded its future records its own
+         * future after it.
+         */
+        synchronized void scheduleNext() {
+            long due = startNanos + nextTick * periodNanos;
+            dueNanos = due;
+            // bypasses subclasses so that the execution is queued, as a periodic task, in the queue
+            ScheduledFuture<?> future = ThreadPool.super.schedule(this, due - System.nanoTime(), TimeUnit.NANOSECONDS);
+            scheduled = future;
+            if (isCancelled()) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                ScheduledFuture<?> future;
+                synchronized (this) {
+                    future = scheduled;
+                }
+                if (future != null) {
+                    future.cancel(false);
+                }
+            }
+            return cancelled;
+        }
+
+        @Override
+        public void exit() {
+            cancel(false);
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return true;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
         }
     }
 
+    private final ThreadPoolMetrics metrics = new ThreadPoolMetrics(this);
+    private final List<ThreadPoolListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile int maximumQueueSize = Integer.MAX_VALUE;
+    private volatile AdmissionPolicy admissionPolicy;
+    private final FairShareScheduler fairShareScheduler = new FairShareScheduler(this);
+    private final ConcurrentHashMap<Object, CoalescedTask> coalescedTasks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Thread, Long> runningTasks = new ConcurrentHashMap<>();
+    private final AtomicBoolean registrationChecked = new AtomicBoolean();
+    private volatile boolean registered;
+    private final boolean metricsEnabled;
+
     public ThreadPool(int corePoolSize) {
-        super(corePoolSize, new ThreadPoolThreadFactory());
+        super(corePoolSize, new ThreadPoolThreadFactory(),
+                new InstrumentedRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy()));
+        metricsEnabled = false;
     }
 
     public ThreadPool(int corePoolSize, RejectedExecutionHandler handler) {
-        super(corePoolSize, new ThreadPoolThreadFactory(), handler);
+        super(corePoolSize, new ThreadPoolThreadFactory(), new InstrumentedRejectedExecutionHandler(handler));
+        metricsEnabled = false;
+    }
+
+    private ThreadPool(Builder builder) {
+        super(builder.corePoolSize, new ThreadPoolThreadFactory(builder),
+                new InstrumentedRejectedExecutionHandler(builder.rejectedExecutionHandler));
+        metricsEnabled = builder.metrics;
+    }
+
+    /**
+     * Creates a builder for a ThreadPool
+     * 
+     * @param corePoolSize The number of threads to keep in the pool
+     * @return The builder
+     */
+    public static Builder builder(int corePoolSize) {
+        return new Builder(corePoolSize);
+    }
+
+    /**
+     * Gets the name for the next thread created by any pool
+     * 
+     * @return The thread name
+     */
+    static String nextThreadName() {
+        return "ThreadPool_" + ThreadPoolThreadFactory.nextId.getAndIncrement();
+    }
+
+    /**
+     * Gets the name of this pool, the prefix of its thread names if configured
+     * 
+     * @return The name
+     */
+    public String getName() {
+        String namePrefix = ((ThreadPoolThreadFactory) getThreadFactory()).namePrefix;
+        return namePrefix == null ? "ThreadPool@" + Integer.toHexString(System.identityHashCode(this)) : namePrefix;
+    }
+
+    /**
+     * Registers this pool with the {@link TaskRegistry} if the registry is enabled. Called once
+     * this pool is fully constructed, when it is built or when it first executes a task, so
+     * that the registry never sees a partially constructed subclass.
+     */
+    void register() {
+        if (!registrationChecked.get() && registrationChecked.compareAndSet(false, true)) {
+            registered = TaskRegistry.getInstance().register(this);
+            if (registered && isShutdown()) {
+                // terminated may already have missed the registration
+                TaskRegistry.getInstance().unregister(this);
+                registered = false;
+            }
+        }
+    }
+
+    /**
+     * Gets the start times of the tasks executing on this pool's threads, recorded only while
+     * this pool is registered with the {@link TaskRegistry} and the registry is enabled
+     * 
+     * @return The start times in nanoseconds by thread
+     */
+    Map<Thread, Long> getRunningTasks() {
+        return runningTasks;
     }
 
     @Override
@@ -33,6 +736,170 @@ public class ThreadPool extends ScheduledThreadPoolExecutor {
         throw new UnsupportedOperationException("The thread factory cannot be changed");
     }
 
+    /**
+     * Sets the placement of threads created by this pool after this call. Threads that have
+     * already been created are not moved.
+     * 
+     * @param placement The placement
+     */
+    public void setWorkerPlacement(WorkerPlacement placement) {
+        ((ThreadPoolThreadFactory) getThreadFactory()).placement = Preconditions.checkNotNull(placement);
+    }
+
+    /**
+     * Gets the placement of threads created by this pool
+     * 
+     * @return The placement
+     */
+    public WorkerPlacement getWorkerPlacement() {
+        return ((ThreadPoolThreadFactory) getThreadFactory()).placement;
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        super.setRejectedExecutionHandler(new InstrumentedRejectedExecutionHandler(handler));
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return ((InstrumentedRejectedExecutionHandler) super.getRejectedExecutionHandler()).delegate;
+    }
+
+    /**
+     * Gets the metrics recorded by this pool. Metrics are only recorded by a pool built with
+     * metrics enabled, and otherwise remain empty.
+     * 
+     * @return The metrics
+     */
+    public ThreadPoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Determines if this pool records metrics
+     * 
+     * @return True if metrics are recorded
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * Adds a listener to be notified of the execution of tasks
+     * 
+     * @param listener The listener
+     */
+    public void addListener(ThreadPoolListener listener) {
+        listeners.add(Preconditions.checkNotNull(listener));
+    }
+
+    /**
+     * Removes a listener
+     * 
+     * @param listener The listener
+     */
+    public void removeListener(ThreadPoolListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets the maximum number of tasks in the pool's queue, including delayed and periodic
+     * tasks. One shot tasks submitted while the queue is full are rejected. The bound is not
+     * exact since concurrent submissions may each find space for a single task. Pools that
+     * dispatch tasks without using the pool's queue, such as a PriorityThreadPool, do not
+     * support a maximum queue size.
+     * 
+     * @param maximumQueueSize The maximum queue size
+     * @throws UnsupportedOperationException If the pool does not support a maximum queue size
+     */
+    public void setMaximumQueueSize(int maximumQueueSize) {
+        Preconditions.checkArgument(maximumQueueSize > 0, "maximumQueueSize must be positive");
+        this.maximumQueueSize = maximumQueueSize;
+    }
+
+    /**
+     * Gets the maximum number of tasks in the pool's queue
+     * 
+     * @return The maximum queue size, Integer.MAX_VALUE if unbounded
+     */
+    public int getMaximumQueueSize() {
+        return maximumQueueSize;
+    }
+
+    /**
+     * Sets the policy consulted before one shot tasks are queued. Pools that dispatch tasks
+     * without using the pool's queue, such as a PriorityThreadPool, do not support a policy.
+     * 
+     * @param admissionPolicy The policy or null to admit all tasks
+     * @throws UnsupportedOperationException If the pool does not support an admission policy
+     */
+    public void setAdmissionPolicy(AdmissionPolicy admissionPolicy) {
+        AdmissionPolicy previous = this.admissionPolicy;
+        if (previous != null) {
+            listeners.remove(previous);
+        }
+        if (admissionPolicy != null) {
+            listeners.add(admissionPolicy);
+        }
+        this.admissionPolicy = admissionPolicy;
+    }
+
+    /**
+     * Gets the policy consulted before one shot tasks are queued
+     * 
+     * @return The policy or null if all tasks are admitted
+     */
+    public AdmissionPolicy getAdmissionPolicy() {
+        return admissionPolicy;
+    }
+
+    /**
+     * <pre>
+     * Creates a named partition of this pool's threads.
+     * 
+     * Tasks executed in a partition are queued separately from other tasks and are run by the 
+     * pool's threads in weighted fair order.  While a partition has queued tasks it is given 
+     * at least minimumWorkers threads as they become available, and the remaining threads are 
+     * shared between the partitions with queued tasks in proportion to their weights.  Tasks 
+     * executed directly in the pool are not part of any partition.
+     * </pre>
+     * 
+     * @param name The name of the partition
+     * @param weight The weight of the partition
+     * @param minimumWorkers The number of threads guaranteed to the partition
+     * @return The partition
+     */
+    public ThreadPoolPartition createPartition(String name, int weight, int minimumWorkers) {
+        return fairShareScheduler.createPartition(name, weight, minimumWorkers);
+    }
+
+    /**
+     * Gets the partitions of this pool
+     * 
+     * @return The partitions
+     */
+    public List<ThreadPoolPartition> getPartitions() {
+        return fairShareScheduler.getPartitions();
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        try {
+            return super.schedule(command, delay, unit);
+        } catch (NotAdmittedException e) {
+            return notAdmitted(e);
+        }
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        try {
+            return super.schedule(callable, delay, unit);
+        } catch (NotAdmittedException e) {
+            return notAdmitted(e);
+        }
+    }
+
     @SuppressWarnings("squid:S1452")
     public ScheduledFuture<?> schedule(Runnable command, Duration delay) {
         return schedule(command, delay.toNanos(), TimeUnit.NANOSECONDS);
@@ -42,6 +909,103 @@ public class ThreadPool extends ScheduledThreadPoolExecutor {
         return schedule(callable, delay.toNanos(), TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * <pre>
+     * Schedules a task by key, coalescing it with a task already scheduled for the key.
+     * 
+     * If a task scheduled for the key has not yet started, its command is replaced by this 
+     * command and its future is returned, keeping the original delay.  Otherwise a new task is 
+     * scheduled.  Many schedules for the same key within the delay therefore result in a 
+     * single execution of the most recent command, without allocating or queuing a task for 
+     * each schedule.  Completed and cancelled tasks no longer coalesce.
+     * 
+     * A task that will never run, because it was rejected by a handler that does not throw, 
+     * removed or drained by shutdownNow, is cancelled.  Once the pool is shut down schedules 
+     * are rejected rather than coalesced.
+     * </pre>
+     * 
+     * @param key The key, compared using equals
+     * @param command The task
+     * @param delay The delay before execution
+     * @return A future representing the pending execution of the task for the key
+     */
+    @SuppressWarnings("squid:S1452")
+    public ScheduledFuture<?> schedule(Object key, Runnable command, Duration delay) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(command);
+        long delayNanos = delay.toNanos();
+
+        CoalescedTask[] created = new CoalescedTask[1];
+        CoalescedTask task;
+        if (isShutdown()) {
+            // not coalesced so that the schedule is rejected
+            created[0] = new CoalescedTask(key, command, delayNanos);
+            task = created[0];
+        } else {
+            task = coalescedTasks.compute(key, (k, existing) -> {
+                if (existing != null && !existing.isDone()) {
+                    existing.latest.command = command;
+                    return existing;
+                }
+                created[0] = new CoalescedTask(k, command, delayNanos);
+                return created[0];
+            });
+        }
+
+        if (task == created[0]) {
+            try {
+                task.scheduled = schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                task.cancel(false);
+                throw e;
+            }
+        }
+        return task;
+    }
+
+    /**
+     * <pre>
+     * Submits a batch of tasks.
+     * 
+     * Rather than queuing each task, at most corePoolSize runners are queued and each runs 
+     * tasks from the batch in order until none remain.  The pool's metrics and listeners see 
+     * the runners rather than the individual tasks.
+     * 
+     * Once every runner has exited, whether by running, by being rejected by a handler that 
+     * does not throw, by cancellation or by being drained by shutdownNow, the tasks that have 
+     * not started are cancelled.
+     * </pre>
+     * 
+     * @param tasks The tasks
+     * @param <V> The result type
+     * @return Futures for the tasks, in the iteration order of the collection
+     * @throws RejectedExecutionException if no runner can be executed, in which case every
+     *             task is cancelled
+     */
+    public <V> List<Future<V>> submitBatch(Collection<? extends Callable<V>> tasks) {
+        Preconditions.checkNotNull(tasks);
+        List<FutureTask<V>> futures = new ArrayList<>(tasks.size());
+        for (Callable<V> task : tasks) {
+            futures.add(new FutureTask<>(Preconditions.checkNotNull(task)));
+        }
+
+        Batch<V> batch = new Batch<>(futures);
+        int runners = Math.min(futures.size(), Math.max(1, getCorePoolSize()));
+        for (int i = 0; i < runners; i++) {
+            try {
+                execute(new BatchRunner(batch));
+            } catch (RejectedExecutionException e) {
+                if (i == 0) {
+                    // the batch was cancelled when its only runner was rejected
+                    throw e;
+                }
+                // the runners already queued complete the batch
+                break;
+            }
+        }
+        return new ArrayList<>(futures);
+    }
+
     @SuppressWarnings("squid:S1452")
     public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, Duration initialDelay,
             Duration period) {
@@ -49,6 +1013,52 @@ public class ThreadPool extends ScheduledThreadPoolExecutor {
                 TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * Schedules a task to execute periodically at a fixed rate, applying the given policy to
+     * executions missed due to pauses or overruns
+     * 
+     * @param command The task
+     * @param initialDelay The delay before the first execution
+     * @param period The period between executions
+     * @param overrunPolicy Determines how missed executions are handled
+     * @return A future representing the periodic task
+     */
+    @SuppressWarnings("squid:S1452")
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, Duration initialDelay,
+            Duration period, OverrunPolicy overrunPolicy) {
+        Preconditions.checkNotNull(command);
+        return scheduleAtFixedRate((missed, drift) -> command.run(), initialDelay, period, overrunPolicy);
+    }
+
+    /**
+     * Schedules a task to execute periodically at a fixed rate, applying the given policy to
+     * executions missed due to pauses or overruns. The task is informed of the number of missed
+     * executions and the drift of each execution. Each execution is queued once the previous
+     * execution has run, for the next execution the policy runs, so executions the policy
+     * does not run are never queued. The task is not continued after shutdown.
+     * 
+     * @param task The task
+     * @param initialDelay The delay before the first execution
+     * @param period The period between executions
+     * @param overrunPolicy Determines how missed executions are handled
+     * @return A future representing the periodic task
+     */
+    @SuppressWarnings("squid:S1452")
+    public ScheduledFuture<?> scheduleAtFixedRate(FixedRateTask task, Duration initialDelay,
+            Duration period, OverrunPolicy overrunPolicy) {
+        Preconditions.checkNotNull(task);
+        Preconditions.checkArgument(!period.isNegative() && !period.isZero(), "period must be positive");
+        long startNanos = System.nanoTime() + Math.max(0, initialDelay.toNanos());
+        OverrunTask overrunTask = new OverrunTask(task, overrunPolicy, startNanos, period.toNanos());
+        try {
+            overrunTask.scheduleNext();
+        } catch (RejectedExecutionException e) {
+            overrunTask.cancel(false);
+            throw e;
+        }
+        return overrunTask;
+    }
+
     @SuppressWarnings("squid:S1452")
     public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, Duration initialDelay,
             Duration delay) {
@@ -56,4 +1066,229 @@ public class ThreadPool extends ScheduledThreadPoolExecutor {
                 TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * Rejects a task that bypassed the executor's queue, recording the rejection and invoking the
+     * rejected execution handler
+     * 
+     * @param task The rejected task
+     */
+    protected void reject(Runnable task) {
+        super.getRejectedExecutionHandler().rejectedExecution(task, this);
+    }
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task) {
+        register();
+        if (runnable instanceof ExitingCommand) {
+            return admit(new ExitingTask<>(task, (ExitingCommand) runnable), runnable);
+        }
+        return admit(task, runnable);
+    }
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
+        register();
+        return admit(task, callable);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (!isTimed()) {
+            return;
+        }
+
+        long queueWaitNanos = 0;
+        boolean periodic = false;
+        if (r instanceof RunnableScheduledFuture) {
+            RunnableScheduledFuture<?> task = (RunnableScheduledFuture<?>) r;
+            queueWaitNanos = Math.max(0, -task.getDelay(TimeUnit.NANOSECONDS));
+            periodic = task.isPeriodic();
+        }
+
+        if (metricsEnabled) {
+            metrics.taskStarted(r, queueWaitNanos, periodic);
+        }
+        if (!listeners.isEmpty()) {
+            for (ThreadPoolListener listener : listeners) {
+                listener.taskStarted(r, queueWaitNanos, periodic);
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        taskStartNanos.get()[0] = startNanos;
+        if (isTracked()) {
+            runningTasks.put(t, startNanos);
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        if (registered && !runningTasks.isEmpty()) {
+            // removed even if the registry was disabled while the task ran
+            runningTasks.remove(Thread.currentThread());
+        }
+        if (!isTimed()) {
+            super.afterExecute(r, t);
+            return;
+        }
+
+        long[] start = taskStartNanos.get();
+        if (start[0] == NOT_TIMED) {
+            // timing was enabled while the task ran
+            super.afterExecute(r, t);
+            return;
+        }
+        long executionNanos = System.nanoTime() - start[0];
+        start[0] = NOT_TIMED;
+
+        Throwable exception = t == null ? getException(r) : t;
+        if (metricsEnabled) {
+            metrics.taskCompleted(r, executionNanos, exception);
+        }
+        if (!listeners.isEmpty()) {
+            for (ThreadPoolListener listener : listeners) {
+                listener.taskCompleted(r, executionNanos, exception);
+            }
+        }
+
+        super.afterExecute(r, t);
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        boolean removed = super.remove(task);
+        if (removed) {
+            taskRemoved(task);
+            if (task instanceof ExitingTask) {
+                ((ExitingTask<?>) task).command.exit();
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> notExecuted = super.shutdownNow();
+        for (Runnable task : notExecuted) {
+            taskRemoved(task);
+            if (task instanceof ExitingTask) {
+                ((ExitingTask<?>) task).command.exit();
+            }
+        }
+        return notExecuted;
+    }
+
+    /**
+     * Notifies listeners of a task removed from the queue without being executed
+     * 
+     * @param task The removed task
+     */
+    private void taskRemoved(Runnable task) {
+        if (!listeners.isEmpty()) {
+            for (ThreadPoolListener listener : listeners) {
+                listener.taskRemoved(task);
+            }
+        }
+    }
+
+    /**
+     * Determines if the start and completion of tasks are timed, for the metrics, listeners or
+     * the {@link TaskRegistry}
+     * 
+     * @return True if tasks are timed
+     */
+    private boolean isTimed() {
+        return metricsEnabled || !listeners.isEmpty() || isTracked();
+    }
+
+    /**
+     * Determines if the tasks executing on this pool's threads are tracked for the
+     * {@link TaskRegistry}
+     * 
+     * @return True if this pool is registered and the registry is enabled
+     */
+    private boolean isTracked() {
+        return registered && TaskRegistry.getInstance().isEnabled();
+    }
+
+    @Override
+    protected void terminated() {
+        if (registered) {
+            TaskRegistry.getInstance().unregister(this);
+        }
+        try {
+            metrics.unregisterMBean();
+        } catch (JMException e) {
+            LOG.warn("Unable to unregister thread pool metrics", e);
+        }
+        super.terminated();
+    }
+
+    /**
+     * Records the rejection of a task and notifies listeners
+     * 
+     * @param r The rejected task
+     */
+    void taskRejected(Runnable r) {
+        if (metricsEnabled) {
+            metrics.taskRejected(r);
+        }
+        if (!listeners.isEmpty()) {
+            for (ThreadPoolListener listener : listeners) {
+                listener.taskRejected(r);
+            }
+        }
+    }
+
+    /**
+     * Applies the maximum queue size and admission policy to a one shot task about to be queued.
+     * A task that is not admitted aborts its submission before it is queued.
+     */
+    private <V> RunnableScheduledFuture<V> admit(RunnableScheduledFuture<V> task, Object command) {
+        AdmissionPolicy policy = admissionPolicy;
+        if (task.isPeriodic() || isShutdown() || (policy == null && maximumQueueSize == Integer.MAX_VALUE)) {
+            return task;
+        }
+
+        int priority = command instanceof PrioritizedTask ? ((PrioritizedTask) command).getPriority() : 0;
+        if (policy == null || policy.admit(this, task, priority)) {
+            if (getQueue().size() < maximumQueueSize) {
+                return task;
+            }
+            // admitted by the policy but the queue filled concurrently
+            taskRemoved(task);
+        }
+
+        throw new NotAdmittedException(task);
+    }
+
+    /**
+     * Passes a task that was not admitted to the rejected execution handler, cancelling it
+     * unless the handler ran it
+     */
+    @SuppressWarnings("unchecked")
+    private <V> ScheduledFuture<V> notAdmitted(NotAdmittedException e) {
+        RunnableScheduledFuture<V> task = (RunnableScheduledFuture<V>) e.task;
+        reject(task);
+        task.cancel(false);
+        return task;
+    }
+
+    /** Gets the exception captured by a completed future task */
+    private static Throwable getException(Runnable r) {
+        if (r instanceof Future && ((Future<?>) r).isDone()) {
+            try {
+                ((Future<?>) r).get();
+            } catch (ExecutionException e) {
+                return e.getCause();
+            } catch (CancellationException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return null;
+    }
+
 }
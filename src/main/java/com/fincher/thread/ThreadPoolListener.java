@@ -0,0 +1,51 @@
+package com.fincher.thread;
+
+/**
+ * Notified of the execution of tasks by a ThreadPool. Methods are invoked on the thread
+ * executing or submitting the task and should return quickly.
+ * 
+ * @author Brian Fincher
+ *
+ */
+public interface ThreadPoolListener {
+
+    /**
+     * Called before a task is executed
+     * 
+     * @param task The task
+     * @param queueWaitNanos The time the task waited in the queue after becoming eligible to run
+     * @param periodic true if the task is periodic, in which case the queue wait is also the
+     *            drift of this execution from its scheduled time
+     */
+    public default void taskStarted(Runnable task, long queueWaitNanos, boolean periodic) {
+    }
+
+    /**
+     * Called after a task is executed
+     * 
+     * @param task The task
+     * @param executionNanos The time taken to execute the task
+     * @param exception The exception thrown by the task or null if the task completed normally
+     */
+    public default void taskCompleted(Runnable task, long executionNanos, Throwable exception) {
+    }
+
+    /**
+     * Called when a task is rejected
+     * 
+     * @param task The task
+     */
+    public default void taskRejected(Runnable task) {
+    }
+
+    /**
+     * Called when a queued task is removed from the queue without being executed, either by
+     * {@link ThreadPool#remove(Runnable)}, by cancellation when the pool removes cancelled tasks
+     * or by {@link ThreadPool#shutdownNow()}
+     * 
+     * @param task The task
+     */
+    public default void taskRemoved(Runnable task) {
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.fincher.thread;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * <pre>
+ * Metrics recorded by a ThreadPool.
+ * 
+ * Records histograms of the time tasks wait in the queue, the time taken to execute them and 
+ * the drift of periodic executions from their scheduled times, counts of completed, failed and 
+ * rejected tasks, and exposes gauges of the pool's threads.  May be registered as a JMX MBean.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class ThreadPoolMetrics implements ThreadPoolListener, ThreadPoolMetricsMBean {
+
+    private final ThreadPool threadPool;
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram executionTime = new LatencyHistogram();
+    private final LatencyHistogram schedulingDrift = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile ObjectName objectName;
+
+    ThreadPoolMetrics(ThreadPool threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    @Override
+    public void taskStarted(Runnable task, long queueWaitNanos, boolean periodic) {
+        queueWait.record(queueWaitNanos);
+        if (periodic) {
+            schedulingDrift.record(queueWaitNanos);
+        }
+    }
+
+    @Override
+    public void taskCompleted(Runnable task, long executionNanos, Throwable exception) {
+        executionTime.record(executionNanos);
+        if (exception == null) {
+            completed.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    @Override
+    public void taskRejected(Runnable task) {
+        rejected.increment();
+    }
+
+    /**
+     * Gets the histogram of the time tasks waited in the queue after becoming eligible to run
+     * 
+     * @return The histogram
+     */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * Gets the histogram of task execution times
+     * 
+     * @return The histogram
+     */
+    public LatencyHistogram getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * Gets the histogram of the drift of periodic task executions from their scheduled times
+     * 
+     * @return The histogram
+     */
+    public LatencyHistogram getSchedulingDrift() {
+        return schedulingDrift;
+    }
+
+    @Override
+    public int getPoolSize() {
+        return threadPool.getPoolSize();
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return threadPool.getActiveCount();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return Math.max(0, threadPool.getPoolSize() - threadPool.getActiveCount());
+    }
+
+    @Override
+    public int getQueueSize() {
+        return threadPool.getQueue().size();
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getFailedTaskCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getRejectedTaskCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public double getQueueWaitMeanMicros() {
+        return queueWait.getMean() / 1000;
+    }
+
+    @Override
+    public long getQueueWaitP99Micros() {
+        return toMicros(queueWait.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getQueueWaitMaxMicros() {
+        return toMicros(queueWait.getMax());
+    }
+
+    @Override
+    public double getExecutionTimeMeanMicros() {
+        return executionTime.getMean() / 1000;
+    }
+
+    @Override
+    public long getExecutionTimeP50Micros() {
+        return toMicros(executionTime.getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getExecutionTimeP99Micros() {
+        return toMicros(executionTime.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getExecutionTimeMaxMicros() {
+        return toMicros(executionTime.getMax());
+    }
+
+    @Override
+    public long getSchedulingDriftP99Micros() {
+        return toMicros(schedulingDrift.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getSchedulingDriftMaxMicros() {
+        return toMicros(schedulingDrift.getMax());
+    }
+
+    @Override
+    public void reset() {
+        queueWait.reset();
+        executionTime.reset();
+        schedulingDrift.reset();
+        completed.reset();
+        failed.reset();
+        rejected.reset();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under the name
+     * com.fincher.thread:type=ThreadPool,name=&lt;name&gt;. The MBean is unregistered when the
+     * pool terminates.
+     * 
+     * @param name The name of the pool
+     * @return The name of the registered MBean
+     * @throws JMException if the MBean cannot be registered
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName newName = new ObjectName("com.fincher.thread:type=ThreadPool,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+        objectName = newName;
+        return newName;
+    }
+
+    /**
+     * Unregisters these metrics from the platform MBean server if registered
+     * 
+     * @throws JMException if the MBean cannot be unregistered
+     */
+    public void unregisterMBean() throws JMException {
+        ObjectName name = objectName;
+        if (name != null) {
+            objectName = null;
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
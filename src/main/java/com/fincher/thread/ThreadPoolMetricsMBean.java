@@ -0,0 +1,45 @@
+package com.fincher.thread;
+
+/**
+ * JMX view of the metrics of a ThreadPool. Latencies are reported in microseconds.
+ * 
+ * @author Brian Fincher
+ *
+ */
+public interface ThreadPoolMetricsMBean {
+
+    public int getPoolSize();
+
+    public int getActiveThreads();
+
+    public int getIdleThreads();
+
+    public int getQueueSize();
+
+    public long getCompletedTaskCount();
+
+    public long getFailedTaskCount();
+
+    public long getRejectedTaskCount();
+
+    public double getQueueWaitMeanMicros();
+
+    public long getQueueWaitP99Micros();
+
+    public long getQueueWaitMaxMicros();
+
+    public double getExecutionTimeMeanMicros();
+
+    public long getExecutionTimeP50Micros();
+
+    public long getExecutionTimeP99Micros();
+
+    public long getExecutionTimeMaxMicros();
+
+    public long getSchedulingDriftP99Micros();
+
+    public long getSchedulingDriftMaxMicros();
+
+    public void reset();
+
+}
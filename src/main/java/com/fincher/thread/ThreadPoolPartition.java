@@ -0,0 +1,135 @@
+package com.fincher.thread;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * A named partition of a ThreadPool's threads, typically one per tenant or class of work.
+ * 
+ * A partition is guaranteed a minimum number of the pool's threads while it has work and 
+ * shares the remaining threads with the other partitions in proportion to its weight.  See 
+ * {@link ThreadPool#createPartition(String, int, int)}.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class ThreadPoolPartition implements Executor {
+
+    private final FairShareScheduler scheduler;
+    private final String name;
+
+    // guarded by the scheduler
+    final int weight;
+    final int minimumWorkers;
+    final ArrayDeque<FairShareScheduler.Entry> queue = new ArrayDeque<>();
+    int running;
+    long completed;
+    double virtualTime;
+    double estimateNanos;
+
+    ThreadPoolPartition(FairShareScheduler scheduler, String name, int weight, int minimumWorkers) {
+        this.scheduler = scheduler;
+        this.name = name;
+        this.weight = weight;
+        this.minimumWorkers = minimumWorkers;
+    }
+
+    /**
+     * Gets the name of this partition
+     * 
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the weight of this partition
+     * 
+     * @return The weight
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Gets the number of threads guaranteed to this partition while it has work
+     * 
+     * @return The minimum number of workers
+     */
+    public int getMinimumWorkers() {
+        return minimumWorkers;
+    }
+
+    /**
+     * Gets the number of tasks waiting to be run in this partition
+     * 
+     * @return The number of queued tasks
+     */
+    public int getQueueSize() {
+        return scheduler.getQueueSize(this);
+    }
+
+    /**
+     * Gets the number of tasks of this partition currently running
+     * 
+     * @return The number of running tasks
+     */
+    public int getRunningCount() {
+        return scheduler.getRunningCount(this);
+    }
+
+    /**
+     * Gets the number of tasks of this partition that have completed
+     * 
+     * @return The number of completed tasks
+     */
+    public long getCompletedCount() {
+        return scheduler.getCompletedCount(this);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Preconditions.checkNotNull(command);
+        scheduler.execute(this, command);
+    }
+
+    /**
+     * Submits a task to be run in this partition
+     * 
+     * @param task The task
+     * @return A future representing the pending completion of the task
+     */
+    public Future<?> submit(Runnable task) {
+        Preconditions.checkNotNull(task);
+        FutureTask<?> future = new FutureTask<>(task, null);
+        scheduler.execute(this, future);
+        return future;
+    }
+
+    /**
+     * Submits a task to be run in this partition
+     * 
+     * @param task The task
+     * @param <T> The result type
+     * @return A future representing the pending completion of the task
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        Preconditions.checkNotNull(task);
+        FutureTask<T> future = new FutureTask<>(task);
+        scheduler.execute(this, future);
+        return future;
+    }
+
+    @Override
+    public String toString() {
+        return "ThreadPoolPartition[" + name + "]";
+    }
+}
@@ -0,0 +1,489 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * A hierarchical hashed timing wheel.
+ * 
+ * Time is divided into ticks which are numbered from the creation of the wheel.  Each level 
+ * of the wheel holds one bucket per digit of a tick number, where a digit is log2(ticksPerWheel)
+ * bits wide.  A timeout is placed in the lowest level at which its expiration tick differs 
+ * from the current tick.  When the current tick reaches a bucket at a higher level the timeouts 
+ * in that bucket cascade to lower levels, and timeouts in the current level zero bucket expire.
+ * 
+ * Scheduling and cancelling are O(1) and lock free for the calling thread; requests are
+ * handed to the wheel thread, which exclusively owns the buckets, through concurrent queues.
+ * Expired timeouts are passed to a dispatcher for execution.
+ * 
+ * The wheel thread parks until the next tick with a non-empty bucket, or the next cascade, 
+ * rather than waking every tick, and parks until a timeout is scheduled while the wheel is 
+ * empty.  A timeout scheduled to expire before the wheel thread would wake unparks it.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+final class TimingWheel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TimingWheel.class);
+
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+
+    /** The parked tick of a wheel thread that is not parked */
+    private static final long AWAKE = -1;
+
+    /** The parked tick of a wheel thread parked until a timeout is scheduled */
+    private static final long IDLE = Long.MAX_VALUE;
+
+    private final long tickNanos;
+    private final int bitsPerLevel;
+    private final long mask;
+    private final int wheelSize;
+    private final int numLevels;
+    private final Timeout<?>[] buckets;
+    private final long startNanos;
+    private final Queue<Timeout<?>> pendingSchedules = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout<?>> pendingCancels = new ConcurrentLinkedQueue<>();
+    private final Executor dispatcher;
+    private final Thread thread;
+    private volatile boolean stopped = false;
+    private volatile long parkedUntilTick = AWAKE;
+
+    // guarded by this, handed the timeouts that have not expired when the wheel stops
+    private Consumer<Timeout<?>> remainder;
+
+    // only accessed by the wheel thread
+    private long currentTick = 0;
+    private int size = 0;
+
+    /**
+     * Constructs and starts a new TimingWheel
+     * 
+     * @param tickDuration The resolution of the wheel
+     * @param ticksPerWheel The number of buckets at each level, rounded up to a power of two
+     * @param dispatcher Executes expired timeouts
+     */
+    TimingWheel(Duration tickDuration, int ticksPerWheel, Executor dispatcher) {
+        Preconditions.checkArgument(!tickDuration.isNegative() && !tickDuration.isZero(),
+                "tickDuration must be positive");
+        Preconditions.checkArgument(ticksPerWheel >= 2 && ticksPerWheel <= 1 << 16,
+                "ticksPerWheel must be between 2 and 65536");
+
+        this.tickNanos = tickDuration.toNanos();
+        this.bitsPerLevel = 32 - Integer.numberOfLeadingZeros(ticksPerWheel - 1);
+        this.wheelSize = 1 << bitsPerLevel;
+        this.mask = wheelSize - 1L;
+        this.numLevels = (Long.SIZE + bitsPerLevel - 1) / bitsPerLevel;
+        this.buckets = new Timeout<?>[numLevels * wheelSize];
+        this.dispatcher = dispatcher;
+        this.startNanos = System.nanoTime();
+
+        thread = new Thread(this::run, "TimingWheel_" + nextId.getAndIncrement());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds a timeout to the wheel
+     * 
+     * @param timeout The timeout
+     */
+    void schedule(Timeout<?> timeout) {
+        pendingSchedules.add(timeout);
+        if (stopped) {
+            // lost a race with stop
+            timeout.cancel(false);
+            return;
+        }
+
+        long parked = parkedUntilTick;
+        if (parked != AWAKE && tickOf(timeout.deadlineNanos) < parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Stops the wheel thread. Timeouts that have not expired are cancelled.
+     */
+    void stop() {
+        stop(timeout -> timeout.cancel(false));
+    }
+
+    /**
+     * Stops the wheel thread, which hands the timeouts that have not expired to a consumer
+     * before it exits. Has no effect if the wheel is already stopped.
+     * 
+     * @param remainder Receives each timeout that has not expired
+     */
+    synchronized void stop(Consumer<Timeout<?>> remainder) {
+        if (!stopped) {
+            this.remainder = remainder;
+            stopped = true;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Determines if the wheel thread has exited
+     * 
+     * @return true if the wheel thread has exited
+     */
+    boolean isTerminated() {
+        return !thread.isAlive();
+    }
+
+    /**
+     * Waits for the wheel thread to exit after a stop
+     * 
+     * @param timeoutNanos The maximum time to wait in nanoseconds
+     * @return true if the wheel thread has exited
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitTermination(long timeoutNanos) throws InterruptedException {
+        TimeUnit.NANOSECONDS.timedJoin(thread, timeoutNanos);
+        return !thread.isAlive();
+    }
+
+    /**
+     * Waits, without being interrupted, for the wheel thread to exit after a stop. Returns
+     * immediately when called by the wheel thread.
+     */
+    void awaitStopped() {
+        boolean interrupted = false;
+        while (thread.isAlive() && Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (!stopped) {
+            long now = System.nanoTime();
+            if (startNanos + currentTick * tickNanos - now > 0) {
+                processCancels();
+                processSchedules();
+                park(nextBusyTick());
+                continue;
+            }
+
+            if (size == 0 && pendingSchedules.isEmpty()) {
+                // nothing can expire or cascade, so the ticks that have passed are skipped
+                currentTick = Math.max(currentTick, (now - startNanos) / tickNanos);
+            }
+
+            processCancels();
+            processSchedules();
+            cascade();
+            expire();
+            currentTick++;
+        }
+
+        Consumer<Timeout<?>> consumer;
+        synchronized (this) {
+            consumer = remainder;
+        }
+        drainRemaining(consumer);
+        LOG.debug("{} stopped", thread.getName());
+    }
+
+    /**
+     * Gets the next tick that needs to be processed: the current tick if it cascades, otherwise
+     * the next tick whose level zero bucket is not empty, or the next cascade
+     */
+    private long nextBusyTick() {
+        if (size == 0) {
+            return IDLE;
+        }
+
+        if ((currentTick & mask) == 0) {
+            return currentTick;
+        }
+
+        long nextCascade = (currentTick | mask) + 1;
+        for (long tick = currentTick; tick < nextCascade; tick++) {
+            if (buckets[(int) (tick & mask)] != null) {
+                return tick;
+            }
+        }
+        return nextCascade;
+    }
+
+    /**
+     * Parks until the start of a tick, a timeout scheduled to expire before it or a stop. The
+     * parked tick is published before the pending schedules are checked, so that a concurrent
+     * schedule either is seen here or sees the parked tick and unparks this thread.
+     */
+    private void park(long tick) {
+        parkedUntilTick = tick;
+        if (pendingSchedules.isEmpty() && !stopped) {
+            if (tick == IDLE) {
+                LockSupport.park(this);
+            } else {
+                long waitNanos = startNanos + tick * tickNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    LockSupport.parkNanos(this, waitNanos);
+                }
+            }
+        }
+        parkedUntilTick = AWAKE;
+    }
+
+    private long tickOf(long deadlineNanos) {
+        long elapsed = deadlineNanos - startNanos;
+        return elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+    }
+
+    private void processCancels() {
+        Timeout<?> timeout;
+        while ((timeout = pendingCancels.poll()) != null) {
+            if (timeout.level >= 0) {
+                unlink(timeout);
+                size--;
+            }
+        }
+    }
+
+    private void processSchedules() {
+        Timeout<?> timeout;
+        while ((timeout = pendingSchedules.poll()) != null) {
+            if (!timeout.isCancelled()) {
+                timeout.expirationTick = Math.max(tickOf(timeout.deadlineNanos), currentTick);
+                place(timeout);
+                size++;
+            }
+        }
+    }
+
+    private void cascade() {
+        for (int level = 1; level < numLevels; level++) {
+            int shift = bitsPerLevel * level;
+            if (shift >= Long.SIZE - 1 || (currentTick & ((1L << shift) - 1)) != 0) {
+                break;
+            }
+
+            Timeout<?> timeout = detach(level, (int) ((currentTick >>> shift) & mask));
+            while (timeout != null) {
+                Timeout<?> next = timeout.next;
+                place(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void expire() {
+        Timeout<?> timeout = detach(0, (int) (currentTick & mask));
+        while (timeout != null) {
+            Timeout<?> next = timeout.next;
+            timeout.next = null;
+            size--;
+            if (!timeout.isCancelled()) {
+                try {
+                    dispatcher.execute(timeout);
+                } catch (RejectedExecutionException e) {
+                    timeout.exit();
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout<?> timeout) {
+        long differentBits = timeout.expirationTick ^ currentTick;
+        int level = differentBits == 0 ? 0
+                : (Long.SIZE - 1 - Long.numberOfLeadingZeros(differentBits)) / bitsPerLevel;
+        int index = (int) ((timeout.expirationTick >>> (bitsPerLevel * level)) & mask);
+
+        int bucket = level * wheelSize + index;
+        Timeout<?> head = buckets[bucket];
+        timeout.level = level;
+        timeout.index = index;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[bucket] = timeout;
+    }
+
+    private void unlink(Timeout<?> timeout) {
+        int bucket = timeout.level * wheelSize + timeout.index;
+        if (timeout.prev == null) {
+            buckets[bucket] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    private Timeout<?> detach(int level, int index) {
+        int bucket = level * wheelSize + index;
+        Timeout<?> head = buckets[bucket];
+        buckets[bucket] = null;
+        for (Timeout<?> timeout = head; timeout != null; timeout = timeout.next) {
+            timeout.prev = null;
+            timeout.level = -1;
+        }
+        return head;
+    }
+
+    private void drainRemaining(Consumer<Timeout<?>> consumer) {
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            Timeout<?> timeout = buckets[bucket];
+            buckets[bucket] = null;
+            while (timeout != null) {
+                Timeout<?> next = timeout.next;
+                timeout.level = -1;
+                timeout.prev = null;
+                timeout.next = null;
+                accept(consumer, timeout);
+                timeout = next;
+            }
+        }
+        size = 0;
+
+        Timeout<?> timeout;
+        while ((timeout = pendingSchedules.poll()) != null) {
+            accept(consumer, timeout);
+        }
+        pendingCancels.clear();
+    }
+
+    private static void accept(Consumer<Timeout<?>> consumer, Timeout<?> timeout) {
+        if (timeout.isCancelled()) {
+            return;
+        }
+
+        try {
+            consumer.accept(timeout);
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to hand off {}", timeout, e);
+            timeout.exit();
+        }
+    }
+
+    /**
+     * A task scheduled on a TimingWheel. Each timeout is itself the node linked into the
+     * wheel's buckets. A timeout that expires but will never run, because its dispatch was
+     * rejected, completes exceptionally with a RejectedExecutionException.
+     * 
+     * @param <V> The result type
+     */
+    static final class Timeout<V> extends FutureTask<V> implements ScheduledFuture<V>, ThreadPool.ExitingCommand {
+        private final TimingWheel wheel;
+        private final long deadlineNanos;
+        private final Runnable command;
+
+        // the task in the executor's queue once moved there when the wheel stopped
+        private volatile ScheduledFuture<?> moved;
+
+        // only accessed by the wheel thread
+        private long expirationTick;
+        private int level = -1;
+        private int index;
+        private Timeout<?> prev;
+        private Timeout<?> next;
+
+        Timeout(TimingWheel wheel, Callable<V> callable, long deadlineNanos) {
+            super(callable);
+            this.wheel = wheel;
+            this.deadlineNanos = deadlineNanos;
+            this.command = null;
+        }
+
+        Timeout(TimingWheel wheel, Runnable runnable, V result, long deadlineNanos) {
+            super(runnable, result);
+            this.wheel = wheel;
+            this.deadlineNanos = deadlineNanos;
+            this.command = runnable;
+        }
+
+        @Override
+        public void exit() {
+            setException(new RejectedExecutionException("Task " + this + " was not executed"));
+        }
+
+        /**
+         * Records the task that runs this timeout in the executor's queue, so that cancelling
+         * this timeout cancels it
+         * 
+         * @param task The task
+         */
+        void moved(ScheduledFuture<?> task) {
+            moved = task;
+            if (isCancelled()) {
+                task.cancel(false);
+            }
+        }
+
+        @Override
+        protected void done() {
+            // a command that is itself told when it will never run, such as a coalesced task
+            if (command instanceof ThreadPool.ExitingCommand) {
+                ((ThreadPool.ExitingCommand) command).exit();
+            }
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+
+            if (other instanceof Timeout) {
+                return Long.signum(deadlineNanos - ((Timeout<?>) other).deadlineNanos);
+            }
+
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                ScheduledFuture<?> task = moved;
+                if (task != null) {
+                    task.cancel(false);
+                } else if (!wheel.stopped) {
+                    wheel.pendingCancels.add(this);
+                }
+            }
+            return cancelled;
+        }
+    }
+}
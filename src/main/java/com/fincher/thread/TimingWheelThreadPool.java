@@ -0,0 +1,153 @@
+package com.fincher.thread;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * A ThreadPool whose one shot delayed tasks are held in a hierarchical timing wheel rather 
+ * than the executor's delay queue.
+ * 
+ * Scheduling and cancelling a delayed task is O(1) and does not contend on the executor's 
+ * queue lock, making this pool suited to large numbers of timeouts that are usually cancelled 
+ * before they expire.  Tasks expire with the resolution of the tick duration and never early.
+ * When a task expires it is executed by the pool's threads.
+ * 
+ * Periodic tasks and tasks without a delay are handled as in a ThreadPool.  When the pool is 
+ * shut down, delayed tasks that have not expired are moved to the executor's queue if 
+ * getExecuteExistingDelayedTasksAfterShutdownPolicy() is true, the default, and run as the 
+ * delayed tasks of a ThreadPool would.  Otherwise, and by shutdownNow, they are cancelled.  A 
+ * delayed task that expires, or is moved, but is rejected, including by a handler that does 
+ * not throw or by the admission policy, completes exceptionally with a 
+ * RejectedExecutionException.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public class TimingWheelThreadPool extends ThreadPool {
+
+    // keeps deadline arithmetic from overflowing
+    private static final long MAX_DELAY_NANOS = Long.MAX_VALUE >> 2;
+
+    private final TimingWheel wheel;
+
+    // set once delayed tasks are moved to the executor's queue on shutdown
+    private volatile boolean movingDelayedTasks;
+
+    /**
+     * Constructs a new TimingWheelThreadPool with a 1 millisecond tick and 512 ticks per wheel
+     * 
+     * @param corePoolSize The number of threads executing tasks
+     */
+    public TimingWheelThreadPool(int corePoolSize) {
+        this(corePoolSize, Duration.ofMillis(1), 512);
+    }
+
+    /**
+     * Constructs a new TimingWheelThreadPool
+     * 
+     * @param corePoolSize The number of threads executing tasks
+     * @param tickDuration The resolution of the timing wheel
+     * @param ticksPerWheel The number of buckets in each level of the timing wheel
+     */
+    public TimingWheelThreadPool(int corePoolSize, Duration tickDuration, int ticksPerWheel) {
+        super(corePoolSize);
+        wheel = new TimingWheel(tickDuration, ticksPerWheel, super::execute);
+    }
+
+    /**
+     * Constructs a new TimingWheelThreadPool
+     * 
+     * @param corePoolSize The number of threads executing tasks
+     * @param tickDuration The resolution of the timing wheel
+     * @param ticksPerWheel The number of buckets in each level of the timing wheel
+     * @param handler The handler used when a task cannot be executed
+     */
+    public TimingWheelThreadPool(int corePoolSize, Duration tickDuration, int ticksPerWheel,
+            RejectedExecutionHandler handler) {
+        super(corePoolSize, handler);
+        wheel = new TimingWheel(tickDuration, ticksPerWheel, super::execute);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        if (delay <= 0 || movingDelayedTasks) {
+            return super.schedule(command, delay, unit);
+        }
+
+        Preconditions.checkNotNull(command);
+        return schedule(new TimingWheel.Timeout<Void>(wheel, command, null, deadline(delay, unit)));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        if (delay <= 0 || movingDelayedTasks) {
+            return super.schedule(callable, delay, unit);
+        }
+
+        Preconditions.checkNotNull(callable);
+        return schedule(new TimingWheel.Timeout<>(wheel, callable, deadline(delay, unit)));
+    }
+
+    @Override
+    public void shutdown() {
+        if (getExecuteExistingDelayedTasksAfterShutdownPolicy() && !isShutdown()) {
+            // the executor's queue runs existing delayed tasks after shutdown, so the timeouts
+            // are moved to it, and later delayed tasks scheduled in it, before it shuts down
+            movingDelayedTasks = true;
+            wheel.stop(this::moveToQueue);
+            wheel.awaitStopped();
+        }
+        super.shutdown();
+        wheel.stop();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        wheel.stop();
+        return super.shutdownNow();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return super.isTerminated() && wheel.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return super.awaitTermination(timeout, unit) && wheel.awaitTermination(deadline - System.nanoTime());
+    }
+
+    private <V> ScheduledFuture<V> schedule(TimingWheel.Timeout<V> timeout) {
+        register();
+        if (isShutdown()) {
+            reject(timeout);
+            timeout.cancel(false);
+        } else {
+            wheel.schedule(timeout);
+        }
+        return timeout;
+    }
+
+    /** Schedules a timeout that has not expired in the executor's queue, called by the wheel thread */
+    private void moveToQueue(TimingWheel.Timeout<?> timeout) {
+        try {
+            timeout.moved(super.schedule(timeout, timeout.getDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS));
+        } catch (RejectedExecutionException e) {
+            timeout.exit();
+        }
+    }
+
+    private static long deadline(long delay, TimeUnit unit) {
+        return System.nanoTime() + Math.min(unit.toNanos(delay), MAX_DELAY_NANOS);
+    }
+}
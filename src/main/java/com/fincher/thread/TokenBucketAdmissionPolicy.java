@@ -0,0 +1,55 @@
+package com.fincher.thread;
+
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * An admission policy that limits the rate at which tasks are admitted with a token bucket.
+ * 
+ * Tokens are added at a fixed rate up to the burst size and each admitted task consumes one. 
+ * Tasks submitted while the bucket is empty are rejected.  The bucket is implemented as a 
+ * single theoretical arrival time updated by compare and set, so admission does not lock.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class TokenBucketAdmissionPolicy implements AdmissionPolicy {
+
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrivalTime;
+
+    /**
+     * Constructs a new TokenBucketAdmissionPolicy
+     * 
+     * @param permitsPerSecond The rate at which tokens are added
+     * @param burst The maximum number of tokens in the bucket
+     */
+    public TokenBucketAdmissionPolicy(double permitsPerSecond, int burst) {
+        Preconditions.checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive");
+        Preconditions.checkArgument(burst > 0, "burst must be positive");
+        this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = emissionIntervalNanos * burst;
+        this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+    }
+
+    @Override
+    public boolean admit(ThreadPool threadPool, RunnableScheduledFuture<?> task, int priority) {
+        long now = System.nanoTime();
+        while (true) {
+            long tat = theoreticalArrivalTime.get();
+            long next = (tat - now > 0 ? tat : now) + emissionIntervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(tat, next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.fincher.thread;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads when the runtime supports them.
+ * 
+ * The library is compiled for Java 11 so virtual threads are looked up reflectively and are only
+ * available when running on Java 21 or later.
+ * 
+ * @author Brian Fincher
+ *
+ */
+final class VirtualThreads {
+
+    private static final ThreadFactory FACTORY = lookupFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Gets a factory that creates unstarted virtual threads.
+     * 
+     * @return The factory or empty if the runtime does not support virtual threads
+     */
+    static Optional<ThreadFactory> factory() {
+        return Optional.ofNullable(FACTORY);
+    }
+
+    /**
+     * Gets a factory that creates unstarted virtual threads.
+     * 
+     * @return The factory
+     * @throws UnsupportedOperationException if the runtime does not support virtual threads
+     */
+    static ThreadFactory requireFactory() {
+        return factory().orElseThrow(() -> new UnsupportedOperationException(
+                "Virtual threads require Java 21 or later but the runtime is "
+                        + System.getProperty("java.version")));
+    }
+
+    private static ThreadFactory lookupFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factoryMethod = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factoryMethod.invoke(builder);
+        } catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException
+                | InvocationTargetException e) {
+            return null;
+        }
+    }
+}
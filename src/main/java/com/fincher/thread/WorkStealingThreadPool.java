@@ -0,0 +1,168 @@
+package com.fincher.thread;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionHandler;
+
+/**
+ * <pre>
+ * A ThreadPool that executes tasks without a delay on work stealing threads.
+ * 
+ * Tasks passed to execute, submit, invokeAll and invokeAny are pushed onto per worker 
+ * deques of a ForkJoinPool in FIFO mode rather than the executor's single shared delay 
+ * queue, so short tasks submitted from many threads do not contend on one lock.  Delayed 
+ * and periodic tasks are scheduled as in a ThreadPool and execute on the pool's scheduler 
+ * threads.
+ * 
+ * Tasks executed on the work stealing threads are not included in the pool's queue wait 
+ * and execution time metrics and are not passed to listeners.
+ * 
+ * shutdownNow drains the tasks that have not started from the work stealing deques.  A task 
+ * pushed while the deques are drained may instead be cancelled.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public class WorkStealingThreadPool extends DispatchingThreadPool {
+
+    private final WorkStealingPool workStealingPool;
+
+    /**
+     * Constructs a new WorkStealingThreadPool
+     * 
+     * @param corePoolSize The number of work stealing threads and the maximum number of
+     *            scheduler threads
+     */
+    public WorkStealingThreadPool(int corePoolSize) {
+        this(corePoolSize, newWorkStealingPool(corePoolSize));
+    }
+
+    /**
+     * Constructs a new WorkStealingThreadPool
+     * 
+     * @param corePoolSize The number of work stealing threads and the maximum number of
+     *            scheduler threads
+     * @param handler The handler used when a task cannot be executed
+     */
+    public WorkStealingThreadPool(int corePoolSize, RejectedExecutionHandler handler) {
+        this(corePoolSize, handler, newWorkStealingPool(corePoolSize));
+    }
+
+    private WorkStealingThreadPool(int corePoolSize, WorkStealingPool workStealingPool) {
+        super(corePoolSize, workStealingPool);
+        this.workStealingPool = workStealingPool;
+    }
+
+    private WorkStealingThreadPool(int corePoolSize, RejectedExecutionHandler handler,
+            WorkStealingPool workStealingPool) {
+        super(corePoolSize, handler, workStealingPool);
+        this.workStealingPool = workStealingPool;
+    }
+
+    /**
+     * Gets an estimate of the number of tasks waiting in the work stealing deques
+     * 
+     * @return The number of queued tasks
+     */
+    public long getQueuedWorkStealingTaskCount() {
+        return workStealingPool.getQueuedTaskCount() + workStealingPool.getQueuedSubmissionCount();
+    }
+
+    @Override
+    <T> ImmediateTask<T> newImmediateTask(Runnable runnable, T result) {
+        return new ImmediateTask<>(runnable, result);
+    }
+
+    @Override
+    <T> ImmediateTask<T> newImmediateTask(Callable<T> callable) {
+        return new ImmediateTask<>(callable);
+    }
+
+    @Override
+    void executeImmediate(ImmediateTask<?> task) {
+        workStealingPool.execute(new ImmediateAction(task));
+    }
+
+    @Override
+    List<ImmediateTask<?>> shutdownImmediateExecutorNow() {
+        // drained before shutdownNow, which cancels the tasks remaining in the deques
+        workStealingPool.shutdown();
+        List<ForkJoinTask<?>> drained = new ArrayList<>();
+        workStealingPool.drainTasksTo(drained);
+        workStealingPool.shutdownNow();
+
+        List<ImmediateTask<?>> tasks = new ArrayList<>(drained.size());
+        for (ForkJoinTask<?> task : drained) {
+            if (task instanceof ImmediateAction) {
+                tasks.add(((ImmediateAction) task).task);
+            }
+        }
+        return tasks;
+    }
+
+    private static WorkStealingPool newWorkStealingPool(int parallelism) {
+        return new WorkStealingPool(parallelism);
+    }
+
+    /** A ForkJoinPool whose queued tasks can be drained by shutdownNow */
+    private static final class WorkStealingPool extends ForkJoinPool {
+
+        WorkStealingPool(int parallelism) {
+            super(parallelism, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName(nextThreadName());
+                return thread;
+            }, null, true);
+        }
+
+        @Override
+        protected int drainTasksTo(Collection<? super ForkJoinTask<?>> c) {
+            return super.drainTasksTo(c);
+        }
+    }
+
+    /**
+     * Runs an immediate task in the work stealing pool, so that drained tasks can be returned
+     * by shutdownNow. A task cancelled by the pool's shutdownNow cancels its immediate task.
+     */
+    private static final class ImmediateAction extends ForkJoinTask<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ImmediateTask<?> task;
+
+        ImmediateAction(ImmediateTask<?> task) {
+            this.task = task;
+        }
+
+        @Override
+        public Void getRawResult() {
+            return null;
+        }
+
+        @Override
+        protected void setRawResult(Void value) {
+            // no result
+        }
+
+        @Override
+        protected boolean exec() {
+            task.run();
+            return true;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                task.cancel(false);
+            }
+            return cancelled;
+        }
+    }
+}
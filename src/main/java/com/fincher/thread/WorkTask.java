@@ -0,0 +1,21 @@
+package com.fincher.thread;
+
+/**
+ * A task that reports the amount of work performed by each iteration. A work count of zero
+ * indicates that the iteration found nothing to do, allowing the executing thread to apply its
+ * {@link IdleStrategy}.
+ * 
+ * @author Brian Fincher
+ *
+ */
+public interface WorkTask extends Task {
+
+    /**
+     * Performs a single iteration of work
+     * 
+     * @return The amount of work performed, zero if there was nothing to do
+     * @throws Exception if unable to perform the work
+     */
+    public int doWork() throws Exception;
+
+}
@@ -0,0 +1,134 @@
+package com.fincher.thread;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <pre>
+ * Determines the CPUs on which the threads of a ThreadPool run.
+ * 
+ * Each thread requests its CPU affinity when it starts, based on the order in which the 
+ * pool created it.  The affinity is set shortly after the thread starts rather than before 
+ * its first task, since setting it forks a process.  Placement is only supported on Linux; 
+ * elsewhere, or if the affinity cannot be set, a warning is logged and the thread runs on 
+ * any CPU.
+ * </pre>
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class WorkerPlacement {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WorkerPlacement.class);
+
+    private static final WorkerPlacement NONE = new WorkerPlacement("none", nodes -> worker -> null);
+
+    private final String name;
+    private final Function<List<List<Integer>>, Function<Integer, List<Integer>>> assignment;
+    private volatile Function<Integer, List<Integer>> cpusForWorker;
+
+    private WorkerPlacement(String name,
+            Function<List<List<Integer>>, Function<Integer, List<Integer>>> assignment) {
+        this.name = name;
+        this.assignment = assignment;
+    }
+
+    /**
+     * Threads may run on any CPU, the default
+     * 
+     * @return The placement
+     */
+    public static WorkerPlacement none() {
+        return NONE;
+    }
+
+    /**
+     * Each thread is pinned to a single CPU, assigned from the given CPUs in turn
+     * 
+     * @param cpus The CPUs
+     * @return The placement
+     */
+    public static WorkerPlacement pinned(int... cpus) {
+        Preconditions.checkArgument(cpus.length > 0, "At least one CPU must be given");
+        List<List<Integer>> assigned = new ArrayList<>();
+        for (int cpu : cpus) {
+            Preconditions.checkArgument(cpu >= 0, "CPUs must not be negative");
+            assigned.add(Collections.singletonList(cpu));
+        }
+        return new WorkerPlacement("pinned", nodes -> worker -> assigned.get(worker % assigned.size()));
+    }
+
+    /**
+     * Threads are distributed across the NUMA nodes in turn, each running on any CPU of its
+     * node. Suits pools whose tasks are independent and benefit from the combined memory
+     * bandwidth and cache of all nodes.
+     * 
+     * @return The placement
+     */
+    public static WorkerPlacement spread() {
+        return new WorkerPlacement("spread", nodes -> worker -> nodes.get(worker % nodes.size()));
+    }
+
+    /**
+     * Threads fill one NUMA node, one thread per CPU, before the next node is used, each
+     * running on any CPU of its node. Suits pools whose tasks share data, keeping it in one
+     * node's cache and memory.
+     * 
+     * @return The placement
+     */
+    public static WorkerPlacement pack() {
+        return new WorkerPlacement("pack", nodes -> {
+            int totalCpus = nodes.stream().mapToInt(List::size).sum();
+            return worker -> {
+                int slot = worker % totalCpus;
+                for (List<Integer> node : nodes) {
+                    if (slot < node.size()) {
+                        return node;
+                    }
+                    slot -= node.size();
+                }
+                throw new IllegalStateException();
+            };
+        });
+    }
+
+    /**
+     * Gets the CPUs assigned to a thread
+     * 
+     * @param worker The order in which the pool created the thread, starting from zero
+     * @return The CPUs or null if the thread may run on any CPU
+     */
+    List<Integer> getCpus(int worker) {
+        Function<Integer, List<Integer>> cpus = cpusForWorker;
+        if (cpus == null) {
+            // the topology is only read once a placement is used
+            cpus = assignment.apply(this == NONE ? null : CpuAffinity.getNumaNodes());
+            cpusForWorker = cpus;
+        }
+        return cpus.apply(worker);
+    }
+
+    /**
+     * Applies this placement to the current thread
+     * 
+     * @param worker The order in which the pool created the thread, starting from zero
+     */
+    void apply(int worker) {
+        List<Integer> cpus = getCpus(worker);
+        if (cpus != null && !CpuAffinity.setCurrentThreadAffinity(cpus)) {
+            LOG.warn("Unable to set the affinity of {} to CPUs {}", Thread.currentThread().getName(), cpus);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WorkerPlacement[" + name + "]";
+    }
+}
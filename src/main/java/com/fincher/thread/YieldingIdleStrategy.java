@@ -0,0 +1,23 @@
+package com.fincher.thread;
+
+/**
+ * An idle strategy that yields the processor to other threads when there is no work.
+ * 
+ * @author Brian Fincher
+ *
+ */
+public final class YieldingIdleStrategy implements IdleStrategy {
+
+    /** The shared instance, this strategy holds no state */
+    public static final YieldingIdleStrategy INSTANCE = new YieldingIdleStrategy();
+
+    private YieldingIdleStrategy() {
+    }
+
+    @Override
+    public void idle(int workCount) {
+        if (workCount <= 0) {
+            Thread.yield();
+        }
+    }
+}
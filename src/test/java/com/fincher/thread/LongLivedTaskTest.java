@@ -5,14 +5,34 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 
 public class LongLivedTaskTest {
 
@@ -157,6 +177,896 @@ public class LongLivedTaskTest {
         testThread(null, callable, queue);
     }
 
+    @Test
+    public void testWithThreadFactory() throws InterruptedException, ExecutionException {
+        LinkedBlockingQueue<Integer> queue = new LinkedBlockingQueue<>();
+        LongLivedTask<Void> task = LongLivedTask.create("TestThread", new TestRunnable(queue));
+
+        task.start(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        }).get();
+        assertEquals(10, queue.size());
+    }
+
+    @Test
+    public void testThreadStartFailure() {
+        LongLivedTask<Void> task = LongLivedTask.create("TestThread", new SleepingRunnable());
+
+        // a thread that has already been started cannot be started again
+        assertThrows(IllegalThreadStateException.class, () -> task.start(r -> {
+            Thread t = new Thread(() -> {
+            });
+            t.start();
+            return t;
+        }));
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> task.getCompletionStage().toCompletableFuture().join());
+        assertTrue(e.getCause() instanceof IllegalThreadStateException);
+        assertFalse(task.isRunning());
+        assertThrows(IllegalStateException.class, () -> task.start(Thread::new));
+    }
+
+    @Test
+    public void testWithExecutor() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            LinkedBlockingQueue<Integer> queue1 = new LinkedBlockingQueue<>();
+            LinkedBlockingQueue<Integer> queue2 = new LinkedBlockingQueue<>();
+            Future<Void> future1 = LongLivedTask.create("TestThread1", new TestRunnable(queue1)).startOn(executor);
+            Future<Void> future2 = LongLivedTask.create("TestThread2", new TestRunnable(queue2)).startOn(executor);
+
+            future1.get();
+            future2.get();
+            assertEquals(10, queue1.size());
+            assertEquals(10, queue2.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWithGroup() throws InterruptedException, ExecutionException {
+        LongLivedTaskGroup group = new LongLivedTaskGroup("TestGroup", 2);
+        try {
+            List<AtomicInteger> counters = new ArrayList<>();
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                AtomicInteger counter = new AtomicInteger();
+                counters.add(counter);
+                futures.add(LongLivedTask.create("TestTask" + i, new CountingRunnable(counter, 100)).start(group));
+            }
+
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+
+            for (AtomicInteger counter : counters) {
+                assertEquals(100, counter.get());
+            }
+            assertEquals(0, group.getTaskCount());
+        } finally {
+            group.shutdown();
+        }
+        assertTrue(group.awaitTermination(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void testCancelWithGroup() throws InterruptedException {
+        LongLivedTaskGroup group = new LongLivedTaskGroup("TestGroup", 1);
+        AtomicInteger counter = new AtomicInteger();
+        Future<Void> future = LongLivedTask.create("TestTask", new CountingRunnable(counter, Integer.MAX_VALUE))
+                .start(group);
+        Thread.sleep(50);
+        assertTrue(future.cancel(false));
+        assertTrue(future.isDone());
+
+        group.shutdown();
+        assertTrue(group.awaitTermination(Duration.ofSeconds(5)));
+
+        LongLivedTask<Void> task = LongLivedTask.create("TestTask2", new CountingRunnable(counter, 1));
+        assertThrows(IllegalStateException.class, () -> task.start(group));
+    }
+
+    @Test
+    public void testGroupTaskFailsOutsideIteration() throws Exception {
+        LongLivedTaskGroup group = new LongLivedTaskGroup("TestGroup", 1);
+        try {
+            LongLivedTask<Void> failing = LongLivedTask.create("Failing", new CountingRunnable(new AtomicInteger(), 100) {
+                @Override
+                public void run() {
+                    throw new IllegalStateException("Test Exception");
+                }
+            });
+            failing.setExceptionHandler(e -> {
+                throw new IllegalArgumentException("Handler Exception");
+            });
+            Future<Void> failed = failing.start(group);
+
+            AtomicInteger counter = new AtomicInteger();
+            Future<Void> other = LongLivedTask.create("Other", new CountingRunnable(counter, 100)).start(group);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+            other.get(5, TimeUnit.SECONDS);
+            assertEquals(100, counter.get());
+        } finally {
+            group.shutdown();
+        }
+        assertTrue(group.awaitTermination(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void testGroupShutdownCompletesIteration() throws Exception {
+        LongLivedTaskGroup group = new LongLivedTaskGroup("TestGroup", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger interrupted = new AtomicInteger();
+        LongLivedTask.create("Sleeping", new CountingRunnable(new AtomicInteger(), Integer.MAX_VALUE) {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                }
+            }
+        }).start(group);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        group.shutdown();
+        assertTrue(group.awaitTermination(Duration.ofSeconds(5)));
+        assertEquals(0, interrupted.get());
+    }
+
+    @Test
+    public void testWorkTaskWithBlockingIdleStrategy()
+            throws InterruptedException, ExecutionException, TimeoutException {
+        LinkedBlockingQueue<Integer> source = new LinkedBlockingQueue<>();
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger idleIterations = new AtomicInteger();
+
+        LongLivedTask<Void> task = LongLivedTask.create("TestThread", new WorkTask() {
+            @Override
+            public int doWork() {
+                Integer val = source.poll();
+                if (val == null) {
+                    idleIterations.incrementAndGet();
+                    return 0;
+                }
+                processed.incrementAndGet();
+                return 1;
+            }
+
+            @Override
+            public boolean continueExecution() {
+                return processed.get() < 5;
+            }
+
+            @Override
+            public void terminate() {
+            }
+        });
+
+        BlockingIdleStrategy idleStrategy = new BlockingIdleStrategy(Duration.ofSeconds(30));
+        task.setIdleStrategy(idleStrategy);
+        Future<Void> future = task.start();
+
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(20);
+            source.add(i);
+            idleStrategy.signal();
+        }
+
+        future.get(5, TimeUnit.SECONDS);
+        assertEquals(5, processed.get());
+        assertTrue(idleIterations.get() < 100, "Task did not block while idle");
+    }
+
+    @Test
+    public void testCompletionStage() throws InterruptedException, ExecutionException, TimeoutException {
+        AtomicInteger counter = new AtomicInteger();
+        LongLivedTask<Integer> task = LongLivedTask.create("TestThread", new CallableTask<Integer>() {
+            @Override
+            public Integer call() {
+                return counter.incrementAndGet();
+            }
+
+            @Override
+            public boolean continueExecution() {
+                return counter.get() < 10;
+            }
+
+            @Override
+            public void terminate() {
+            }
+        });
+
+        Future<Integer> future = task.start();
+        assertEquals(10, task.getCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(10, future.get());
+        assertTrue(future.isDone());
+        assertFalse(future.cancel(true));
+    }
+
+    @Test
+    public void testCancelRemainsCancelled() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        LongLivedTask<Void> task = LongLivedTask.create("TestThread",
+                new CountingRunnable(counter, Integer.MAX_VALUE));
+        Future<Void> future = task.start();
+        Thread.sleep(50);
+
+        assertTrue(future.cancel(true));
+        assertFalse(future.cancel(true));
+        assertThrows(CancellationException.class, () -> future.get(1, TimeUnit.SECONDS));
+        CompletionException ce = assertThrows(CompletionException.class,
+                () -> task.getCompletionStage().toCompletableFuture().join());
+        assertTrue(ce.getCause() instanceof CancellationException);
+
+        Thread.sleep(50);
+        assertTrue(future.isCancelled());
+        assertTrue(future.isDone());
+    }
+
+    @Test
+    public void testStreamResults() throws InterruptedException, ExecutionException, TimeoutException {
+        AtomicInteger counter = new AtomicInteger();
+        LongLivedTask<Integer> task = LongLivedTask.create("TestThread", new CallableTask<Integer>() {
+            @Override
+            public Integer call() {
+                return counter.incrementAndGet();
+            }
+
+            @Override
+            public boolean continueExecution() {
+                return counter.get() < 1000;
+            }
+
+            @Override
+            public void terminate() {
+            }
+        });
+
+        ResultBuffer<Integer> buffer = task.streamResults(16);
+        Future<Integer> future = task.start();
+
+        List<Integer> results = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (results.size() < 1000 && System.nanoTime() < deadline) {
+            assertTrue(buffer.size() <= buffer.getCapacity());
+            if (buffer.drain(results::add, 10) == 0) {
+                Thread.sleep(1);
+            }
+        }
+
+        assertEquals(1000, future.get(5, TimeUnit.SECONDS));
+        assertEquals(1000, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i + 1, results.get(i));
+        }
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testBatchTask() throws InterruptedException, ExecutionException, TimeoutException {
+        LinkedBlockingQueue<Integer> source = new LinkedBlockingQueue<>();
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger batches = new AtomicInteger();
+        AtomicInteger maxBatch = new AtomicInteger();
+        List<Integer> received = new ArrayList<>();
+
+        LongLivedTask<Void> task = LongLivedTask.create("TestThread", source, 64, new BatchTask<Integer>() {
+            @Override
+            public void process(List<Integer> batch) {
+                received.addAll(batch);
+                batches.incrementAndGet();
+                maxBatch.accumulateAndGet(batch.size(), Math::max);
+                processed.addAndGet(batch.size());
+            }
+
+            @Override
+            public boolean continueExecution() {
+                return processed.get() < 10000;
+            }
+
+            @Override
+            public void terminate() {
+            }
+        });
+
+        Future<Void> future = task.start();
+        for (int i = 0; i < 10000; i++) {
+            source.add(i);
+        }
+
+        future.get(5, TimeUnit.SECONDS);
+        assertEquals(10000, received.size());
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals(i, received.get(i));
+        }
+        assertTrue(maxBatch.get() <= 64);
+        assertTrue(batches.get() >= 10000 / 64);
+    }
+
+    @Test
+    public void testTaskScopeFailFast() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (TaskScope scope = new TaskScope(TaskScope.Policy.FAIL_FAST)) {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(scope.start(LongLivedTask.create("Sleeper" + i, new SleepingRunnable())));
+            }
+            Future<Object> submitted = scope.submit(executor, () -> {
+                Thread.sleep(60_000);
+                return null;
+            });
+
+            IllegalStateException failure = new IllegalStateException("Test Exception");
+            LongLivedTask<Void> failing = LongLivedTask.create("Failing", new SleepingRunnable() {
+                @Override
+                public void run() {
+                    throw failure;
+                }
+            });
+            failing.setContinueAfterException(false);
+            scope.start(failing, executor);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> scope.join(Duration.ofSeconds(5)));
+            assertEquals(failure, e.getCause());
+            for (Future<Void> future : futures) {
+                assertTrue(future.isCancelled());
+            }
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(submitted::isCancelled);
+            assertEquals(0, scope.getPendingCount());
+            assertThrows(IllegalStateException.class,
+                    () -> scope.start(LongLivedTask.create("Late", new SleepingRunnable())));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testTaskScopeFailFastWhenTerminateThrows() throws Exception {
+        try (TaskScope scope = new TaskScope(TaskScope.Policy.FAIL_FAST)) {
+            Future<Void> throwing = scope.start(LongLivedTask.create("Throwing", new SleepingRunnable() {
+                @Override
+                public void terminate() {
+                    throw new IllegalStateException("Terminate Exception");
+                }
+            }));
+            Future<Void> sleeper = scope.start(LongLivedTask.create("Sleeper", new SleepingRunnable()));
+
+            IllegalStateException failure = new IllegalStateException("Test Exception");
+            LongLivedTask<Void> failing = LongLivedTask.create("Failing", new SleepingRunnable() {
+                @Override
+                public void run() {
+                    throw failure;
+                }
+            });
+            failing.setContinueAfterException(false);
+            scope.start(failing);
+
+            ExecutionException e = assertThrows(ExecutionException.class, scope::join);
+            assertEquals(failure, e.getCause());
+            assertTrue(throwing.isCancelled());
+            assertTrue(sleeper.isCancelled());
+        }
+    }
+
+    @Test
+    public void testTaskScopeAllComplete() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AtomicInteger counter = new AtomicInteger();
+            try (TaskScope scope = new TaskScope(TaskScope.Policy.ALL_COMPLETE)) {
+                Future<Void> counting = scope.start(LongLivedTask.create("Counting", new CountingRunnable(counter, 1000)));
+                Future<Object> failing = scope.submit(executor, () -> {
+                    throw new IllegalStateException("Test Exception");
+                });
+                Future<Integer> succeeding = scope.submit(executor, () -> 42);
+
+                ExecutionException e = assertThrows(ExecutionException.class, () -> scope.join(Duration.ofSeconds(5)));
+                assertTrue(e.getCause() instanceof IllegalStateException);
+                assertTrue(counting.isDone() && !counting.isCancelled());
+                assertTrue(failing.isDone());
+                assertEquals(42, succeeding.get());
+                assertEquals(1000, counter.get());
+                assertEquals(1, scope.getFailures().size());
+            }
+
+            Future<Void> sleeper;
+            try (TaskScope scope = new TaskScope(TaskScope.Policy.ALL_COMPLETE)) {
+                LongLivedTask<Void> sleeperTask = LongLivedTask.create("Sleeper", new SleepingRunnable());
+                sleeper = scope.start(sleeperTask, executor);
+                assertThrows(TimeoutException.class, () -> scope.join(Duration.ofMillis(50)));
+                assertEquals(1, scope.getPendingCount());
+
+                // a task that was already started is not owned by the scope
+                LongLivedTask<Void> started = LongLivedTask.create("Started", new CountingRunnable(counter, 0));
+                started.start().get();
+                assertThrows(IllegalStateException.class, () -> scope.start(started));
+                assertThrows(IllegalStateException.class, () -> scope.start(sleeperTask, executor));
+                assertEquals(1, scope.getPendingCount());
+            }
+            assertTrue(sleeper.isCancelled());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testTaskScopeDiscardedSubmission() throws Exception {
+        ThreadPool threadPool = new ThreadPool(1, new ThreadPoolExecutor.DiscardPolicy());
+        threadPool.shutdown();
+        try (TaskScope scope = new TaskScope(TaskScope.Policy.ALL_COMPLETE)) {
+            // a task discarded by the pool is cancelled rather than left pending
+            Future<Integer> discarded = scope.submit(threadPool, () -> 42);
+            assertTrue(discarded.isCancelled());
+            assertEquals(0, scope.getPendingCount());
+            scope.join();
+        }
+    }
+
+    @Test
+    public void testShutdownCoordinatorCompletesQueuedTerminations() throws Exception {
+        List<LongLivedTask<?>> tasks = new ArrayList<>();
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            LongLivedTask<Void> task = LongLivedTask.create("Slow" + i, new SleepingRunnable() {
+                @Override
+                public void terminate() {
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            futures.add(task.start());
+            tasks.add(task);
+        }
+
+        // two terminate methods run at once so most are still queued at the deadline
+        ShutdownReport report = new ShutdownCoordinator(Duration.ofMillis(100), Duration.ofMillis(100), 2)
+                .shutdown(tasks);
+        assertEquals(8, report.getOverrunTasks().size());
+        for (Future<Void> future : futures) {
+            assertTrue(future.isDone());
+            assertThrows(CancellationException.class, () -> future.get(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testShutdownCoordinator() throws Exception {
+        List<LongLivedTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            LongLivedTask<Void> task = LongLivedTask.create("Poller" + i, new SleepingRunnable() {
+                @Override
+                public void terminate() {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            task.start();
+            tasks.add(task);
+        }
+
+        CountDownLatch started = new CountDownLatch(2);
+        LongLivedTask<Void> blocked = LongLivedTask.create("Blocked", new SleepingRunnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        blocked.start();
+        tasks.add(blocked);
+
+        AtomicInteger release = new AtomicInteger();
+        LongLivedTask<Void> unresponsive = LongLivedTask.create("Unresponsive", new SleepingRunnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                while (release.get() == 0) {
+                    Thread.onSpinWait();
+                }
+            }
+        });
+        unresponsive.start();
+        tasks.add(unresponsive);
+        tasks.add(LongLivedTask.create("NeverStarted", new SleepingRunnable()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ShutdownReport report = new ShutdownCoordinator(Duration.ofMillis(500), Duration.ofMillis(200), 20)
+                .shutdown(tasks);
+        release.set(1);
+
+        assertEquals(21, report.getDrainedTasks().size());
+        assertEquals(Arrays.asList(blocked, unresponsive), report.getOverrunTasks());
+        assertEquals(Arrays.asList(unresponsive), report.getUnresponsiveTasks());
+        assertFalse(report.isClean());
+        // serially the terminate methods alone would take four seconds
+        assertTrue(report.getElapsed().compareTo(Duration.ofSeconds(2)) < 0, report.toString());
+        for (LongLivedTask<?> task : tasks.subList(0, 20)) {
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> task.getCompletionStage().toCompletableFuture().join());
+            assertTrue(e.getCause() instanceof CancellationException);
+        }
+    }
+
+    @Test
+    public void testStats() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        LongLivedTask<Void> task = LongLivedTask.create("TestThread", new CountingRunnable(counter, 1000) {
+            @Override
+            public void run() {
+                if (counter.incrementAndGet() % 100 == 0) {
+                    throw new IllegalStateException("Test Exception");
+                }
+            }
+        });
+        task.setExceptionHandler(e -> {
+        });
+        task.setStatsSampleInterval(1);
+        LongLivedTaskStats stats = task.getStats();
+        assertEquals(0, stats.getIterationCount());
+
+        task.start().get(5, TimeUnit.SECONDS);
+        assertEquals(1000, stats.getIterationCount());
+        assertEquals(10, stats.getExceptionCount());
+        assertEquals(1000, stats.getIterationLatency().getCount());
+        assertEquals(1000, stats.getContinueExecutionLatency().getCount());
+        assertTrue(stats.getIterationsPerSecond() > 0);
+        Thread.sleep(150);
+        // reading the rate must not reset it for other readers
+        assertTrue(stats.getIterationsPerSecond() > 0);
+        assertTrue(stats.getIterationsPerSecond() > 0);
+        Duration sinceLast = stats.getTimeSinceLastIteration();
+        Thread.sleep(20);
+        assertTrue(stats.getTimeSinceLastIteration().compareTo(sinceLast.plusMillis(20)) >= 0);
+
+        AtomicInteger sampledCounter = new AtomicInteger();
+        LongLivedTask<Void> sampled = LongLivedTask.create("TestThread", new CountingRunnable(sampledCounter, 1000));
+        sampled.setStatsSampleInterval(10);
+        sampled.start().get(5, TimeUnit.SECONDS);
+        assertEquals(1000, sampled.getStats().getIterationCount());
+        assertEquals(63, sampled.getStats().getIterationLatency().getCount());
+    }
+
+    @Test
+    public void testFailurePolicy() throws Exception {
+        FailurePolicy policy = FailurePolicy.backoff(Duration.ofMillis(10), Duration.ofMillis(40))
+                .withJitter(0)
+                .withCircuitBreaker(5, Duration.ofMillis(200))
+                .withReportLimit(2, Duration.ofSeconds(10));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), policy.getDelayNanos(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(40), policy.getDelayNanos(4));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), policy.getDelayNanos(5));
+
+        AtomicInteger failing = new AtomicInteger(1);
+        AtomicInteger reported = new AtomicInteger();
+        LongLivedTask<Void> task = LongLivedTask.create("TestThread", new SleepingRunnable() {
+            @Override
+            public void run() {
+                if (failing.get() == 1) {
+                    throw new IllegalStateException("Test Exception");
+                }
+            }
+        });
+        task.setFailurePolicy(policy);
+        task.setExceptionHandler(e -> reported.incrementAndGet());
+        task.setStatsSampleInterval(1);
+
+        LongLivedTaskGroup group = new LongLivedTaskGroup("TestGroup", 1);
+        AtomicInteger groupIterations = new AtomicInteger();
+        LongLivedTask<Void> groupTask = LongLivedTask.create("GroupTask", new SleepingRunnable() {
+            @Override
+            public void run() {
+                groupIterations.incrementAndGet();
+                throw new IllegalStateException("Test Exception");
+            }
+        });
+        groupTask.setFailurePolicy(policy);
+        groupTask.setExceptionHandler(e -> {
+        });
+
+        try {
+            Future<Void> future = task.start();
+            Future<Void> groupFuture = groupTask.start(group);
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(task::isCircuitOpen);
+            Thread.sleep(300);
+
+            // backing off then opening the breaker limits a failing task to a few iterations
+            assertTrue(task.getStats().getIterationCount() <= 8, task.getStats().toString());
+            assertTrue(groupIterations.get() <= 8, "group iterations " + groupIterations.get());
+            assertEquals(2, reported.get());
+
+            failing.set(0);
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> !task.isCircuitOpen());
+            assertEquals(0, task.getStats().getConsecutiveFailures());
+
+            assertTrue(future.cancel(false));
+            assertTrue(groupFuture.cancel(false));
+        } finally {
+            group.shutdown();
+        }
+    }
+
+    @Test
+    public void testGroupCarrierIdleWhileTasksBackOff() throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        List<Thread> carriers = new ArrayList<>();
+        LongLivedTaskGroup group = new LongLivedTaskGroup("TestGroup", 1, r -> {
+            Thread carrier = new Thread(r);
+            carriers.add(carrier);
+            return carrier;
+        });
+
+        AtomicInteger iterations = new AtomicInteger();
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                LongLivedTask<Void> task = LongLivedTask.create("Failing", new SleepingRunnable() {
+                    @Override
+                    public void run() {
+                        iterations.incrementAndGet();
+                        throw new IllegalStateException("Test Exception");
+                    }
+                });
+                task.setFailurePolicy(FailurePolicy.backoff(Duration.ofSeconds(10), Duration.ofSeconds(10)));
+                task.setExceptionHandler(e -> {
+                });
+                futures.add(task.start(group));
+            }
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> iterations.get() == 2);
+
+            // both tasks are paused, so the carrier waits rather than cycling through them
+            long carrierId = carriers.get(0).getId();
+            long cpuStart = threadBean.getThreadCpuTime(carrierId);
+            Thread.sleep(300);
+            long cpuNanos = threadBean.getThreadCpuTime(carrierId) - cpuStart;
+            assertTrue(cpuNanos < TimeUnit.MILLISECONDS.toNanos(50), "carrier cpu " + cpuNanos);
+            assertEquals(2, iterations.get());
+
+            // a cancelled task leaves the group without waiting out its pause
+            assertTrue(futures.get(0).cancel(false));
+            Awaitility.await().atMost(Duration.ofSeconds(1)).until(() -> group.getTaskCount() == 1);
+        } finally {
+            group.shutdown();
+        }
+        assertTrue(group.awaitTermination(Duration.ofSeconds(1)));
+        assertEquals(0, group.getTaskCount());
+        assertTrue(futures.get(1).isCancelled());
+    }
+
+    @Test
+    public void testSupervisorOneForOne() throws Exception {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        Set<Thread> factoryThreads = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        AtomicInteger instances = new AtomicInteger();
+        try (Supervisor supervisor = new Supervisor("TestSupervisor", Supervisor.Strategy.ONE_FOR_ONE, 3,
+                Duration.ofSeconds(10), executor)) {
+            supervisor.supervise(() -> {
+                instances.incrementAndGet();
+                factoryThreads.add(Thread.currentThread());
+                LongLivedTask<Void> task = LongLivedTask.create("Failing", new SleepingRunnable() {
+                    @Override
+                    public void run() {
+                        threads.add(Thread.currentThread());
+                        throw new IllegalStateException("Test Exception");
+                    }
+                });
+                task.setContinueAfterException(false);
+                task.setExceptionHandler(e -> {
+                });
+                return task;
+            });
+
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> supervisor.getCompletionStage().toCompletableFuture().join());
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals(4, instances.get());
+            assertEquals(3, supervisor.getRestartCount());
+            assertTrue(threads.size() < 4, "threads " + threads.size());
+            // the first instance is created by the caller and every restart by the one restart thread
+            assertEquals(2, factoryThreads.size());
+            assertThrows(IllegalStateException.class, () -> supervisor.supervise(() -> null));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSupervisorRestartRejected() throws Exception {
+        ExecutorService pool = Executors.newCachedThreadPool();
+        AtomicInteger executions = new AtomicInteger();
+        Executor executor = command -> {
+            if (executions.incrementAndGet() > 1) {
+                throw new RejectedExecutionException("Test Rejection");
+            }
+            pool.execute(command);
+        };
+        AtomicInteger instances = new AtomicInteger();
+        Set<String> factoryThreads = ConcurrentHashMap.newKeySet();
+        try (Supervisor supervisor = new Supervisor("TestSupervisor", Supervisor.Strategy.ONE_FOR_ONE, 3,
+                Duration.ofSeconds(10), executor)) {
+            supervisor.supervise(() -> {
+                instances.incrementAndGet();
+                factoryThreads.add(Thread.currentThread().getName());
+                LongLivedTask<Void> task = LongLivedTask.create("Failing", new SleepingRunnable() {
+                    @Override
+                    public void run() {
+                        throw new IllegalStateException("Test Exception");
+                    }
+                });
+                task.setContinueAfterException(false);
+                task.setExceptionHandler(e -> {
+                });
+                return task;
+            });
+
+            // a replacement that cannot be started stops the supervisor instead of restarting again
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> supervisor.getCompletionStage().toCompletableFuture().join());
+            assertTrue(e.getCause() instanceof RejectedExecutionException, e.toString());
+            assertEquals(2, instances.get());
+            assertEquals(1, supervisor.getRestartCount());
+            assertTrue(factoryThreads.contains("Supervisor_TestSupervisor"), factoryThreads.toString());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSupervisorOneForAll() throws Exception {
+        LongLivedTaskGroup group = new LongLivedTaskGroup("TestGroup", 2);
+        AtomicInteger failingInstances = new AtomicInteger();
+        AtomicInteger siblingInstances = new AtomicInteger();
+        Supervisor supervisor = new Supervisor("TestSupervisor", Supervisor.Strategy.ONE_FOR_ALL, 3,
+                Duration.ofSeconds(10), group);
+        try {
+            supervisor.supervise(() -> {
+                siblingInstances.incrementAndGet();
+                return LongLivedTask.create("Sibling", new SleepingRunnable());
+            });
+            supervisor.supervise(() -> {
+                boolean fail = failingInstances.incrementAndGet() == 1;
+                LongLivedTask<Void> task = LongLivedTask.create("FailsOnce", new SleepingRunnable() {
+                    @Override
+                    public void run() {
+                        if (fail) {
+                            throw new IllegalStateException("Test Exception");
+                        }
+                        super.run();
+                    }
+                });
+                task.setContinueAfterException(false);
+                task.setExceptionHandler(e -> {
+                });
+                return task;
+            });
+
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> siblingInstances.get() == 2);
+            assertEquals(2, failingInstances.get());
+            assertEquals(1, supervisor.getRestartCount());
+
+            List<LongLivedTask<?>> children = supervisor.getChildren();
+            supervisor.shutdown();
+            supervisor.getCompletionStage().toCompletableFuture().get(1, TimeUnit.SECONDS);
+            for (LongLivedTask<?> child : children) {
+                CompletionException e = assertThrows(CompletionException.class,
+                        () -> child.getCompletionStage().toCompletableFuture().join());
+                assertTrue(e.getCause() instanceof CancellationException);
+            }
+        } finally {
+            group.shutdown();
+        }
+    }
+
+    @Test
+    public void testIterationRateLimit() throws Exception {
+        AtomicInteger threadCounter = new AtomicInteger();
+        AtomicInteger groupCounter = new AtomicInteger();
+        LongLivedTaskGroup group = new LongLivedTaskGroup("TestGroup", 1);
+        try {
+            LongLivedTask<Void> threadTask = LongLivedTask.create("TestThread",
+                    new CountingRunnable(threadCounter, Integer.MAX_VALUE));
+            threadTask.setIterationLimit(IterationLimit.perSecond(100, 5));
+            LongLivedTask<Void> groupTask = LongLivedTask.create("TestTask",
+                    new CountingRunnable(groupCounter, Integer.MAX_VALUE));
+            groupTask.setIterationLimit(IterationLimit.perSecond(100, 5));
+
+            threadTask.start();
+            groupTask.start(group);
+            Thread.sleep(500);
+            threadTask.cancel(true);
+            groupTask.cancel(true);
+
+            // 5 burst iterations plus 100 per second
+            assertTrue(threadCounter.get() >= 30 && threadCounter.get() <= 60, "thread " + threadCounter.get());
+            assertTrue(groupCounter.get() >= 30 && groupCounter.get() <= 60, "group " + groupCounter.get());
+        } finally {
+            group.shutdown();
+        }
+    }
+
+    @Test
+    public void testGroupCarrierIdleWhileTasksThrottled() throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        List<Thread> carriers = new ArrayList<>();
+        LongLivedTaskGroup group = new LongLivedTaskGroup("TestGroup", 1, r -> {
+            Thread carrier = new Thread(r);
+            carriers.add(carrier);
+            return carrier;
+        });
+
+        AtomicInteger counter = new AtomicInteger();
+        try {
+            for (int i = 0; i < 4; i++) {
+                LongLivedTask<Void> task = LongLivedTask.create("TestTask",
+                        new CountingRunnable(counter, Integer.MAX_VALUE));
+                task.setIterationLimit(IterationLimit.perSecond(10, 1));
+                task.start(group);
+            }
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> counter.get() >= 4);
+
+            // between iterations every task is throttled, so the carrier sleeps until the next is due
+            long carrierId = carriers.get(0).getId();
+            long cpuStart = threadBean.getThreadCpuTime(carrierId);
+            long start = System.nanoTime();
+            int countStart = counter.get();
+            Thread.sleep(500);
+            long cpuNanos = threadBean.getThreadCpuTime(carrierId) - cpuStart;
+            long elapsedNanos = System.nanoTime() - start;
+            int count = counter.get() - countStart;
+
+            assertTrue(cpuNanos < elapsedNanos / 10, "carrier cpu " + cpuNanos + " of " + elapsedNanos);
+            assertTrue(count >= 12 && count <= 28, "iterations " + count);
+        } finally {
+            group.shutdown();
+        }
+        assertTrue(group.awaitTermination(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void testIterationDutyCycle() throws Exception {
+        AtomicLong busyNanos = new AtomicLong();
+        LongLivedTask<Void> task = LongLivedTask.create("TestThread", new SleepingRunnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2)) {
+                    Thread.onSpinWait();
+                }
+                busyNanos.addAndGet(System.nanoTime() - start);
+            }
+        });
+        task.setIterationLimit(IterationLimit.dutyCycle(0.2));
+
+        long start = System.nanoTime();
+        task.start();
+        Thread.sleep(500);
+        task.cancel(true);
+        long elapsed = System.nanoTime() - start;
+
+        double dutyCycle = (double) busyNanos.get() / elapsed;
+        assertTrue(dutyCycle > 0.05 && dutyCycle < 0.3, "duty cycle " + dutyCycle);
+        assertThrows(IllegalArgumentException.class, () -> IterationLimit.dutyCycle(0));
+        assertThrows(IllegalArgumentException.class, () -> IterationLimit.perSecond(10, 0));
+    }
+
     private void testThread(RunnableTask runnable, CallableTask<?> callable,
             BlockingQueue<Integer> queue) throws InterruptedException, ExecutionException {
 
@@ -203,4 +1113,48 @@ public class LongLivedTaskTest {
         }
     }
 
+    private static class SleepingRunnable implements RunnableTask {
+        @Override
+        public void run() {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public boolean continueExecution() {
+            return true;
+        }
+
+        @Override
+        public void terminate() {
+        }
+    }
+
+    private static class CountingRunnable implements RunnableTask {
+        private final AtomicInteger counter;
+        private final int numIterations;
+
+        public CountingRunnable(AtomicInteger counter, int numIterations) {
+            this.counter = counter;
+            this.numIterations = numIterations;
+        }
+
+        @Override
+        public void run() {
+            counter.incrementAndGet();
+        }
+
+        @Override
+        public boolean continueExecution() {
+            return counter.get() < numIterations;
+        }
+
+        @Override
+        public void terminate() {
+        }
+    }
+
 }
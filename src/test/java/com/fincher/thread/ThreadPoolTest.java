@@ -1,20 +1,38 @@
 package com.fincher.thread;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
 
 import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
@@ -273,6 +291,1078 @@ public class ThreadPoolTest {
         }
     }
 
+    @Test
+    @Timeout(value = 10)
+    public void testTimingWheel() throws InterruptedException, ExecutionException {
+        TimingWheelThreadPool threadPool = new TimingWheelThreadPool(4, Duration.ofMillis(1), 8);
+        try {
+            AtomicInteger early = new AtomicInteger();
+            AtomicInteger executed = new AtomicInteger();
+            List<ScheduledFuture<Long>> kept = new ArrayList<>();
+            List<ScheduledFuture<?>> cancelled = new ArrayList<>();
+
+            for (int i = 0; i < 2000; i++) {
+                long delayMillis = ThreadLocalRandom.current().nextLong(100, 300);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+                if (i % 2 == 0) {
+                    kept.add(threadPool.schedule(() -> {
+                        if (System.nanoTime() < deadline) {
+                            early.incrementAndGet();
+                        }
+                        executed.incrementAndGet();
+                        return deadline;
+                    }, Duration.ofMillis(delayMillis)));
+                } else {
+                    cancelled.add(threadPool.schedule(executed::incrementAndGet, Duration.ofMillis(delayMillis)));
+                }
+            }
+
+            for (ScheduledFuture<?> future : cancelled) {
+                assertTrue(future.cancel(false));
+            }
+
+            for (ScheduledFuture<Long> future : kept) {
+                future.get();
+            }
+
+            Thread.sleep(350);
+            assertEquals(kept.size(), executed.get());
+            assertEquals(0, early.get());
+
+            ScheduledFuture<?> pending = threadPool.schedule(() -> {
+            }, Duration.ofHours(1));
+            assertTrue(pending.getDelay(TimeUnit.MINUTES) > 58);
+            threadPool.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            threadPool.shutdown();
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(pending::isCancelled);
+            assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+            // the wheel thread is joined as part of termination
+            assertTrue(threadPool.isTerminated());
+            assertFalse(pending.isDone() && !pending.isCancelled());
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testTimingWheelRunsDelayedTasksAfterShutdown() throws Exception {
+        Set<Thread> wheelThreads = timingWheelThreads();
+        TimingWheelThreadPool threadPool = new TimingWheelThreadPool(1);
+        try {
+            // an empty wheel parks until a timeout is scheduled rather than waking every tick
+            Set<Thread> created = timingWheelThreads();
+            created.removeAll(wheelThreads);
+            assertEquals(1, created.size());
+            Thread wheelThread = created.iterator().next();
+            Awaitility.await().atMost(Duration.ofSeconds(2))
+                    .until(() -> wheelThread.getState() == Thread.State.WAITING);
+
+            AtomicInteger executed = new AtomicInteger();
+            ScheduledFuture<?> kept = threadPool.schedule(executed::incrementAndGet, Duration.ofMillis(200));
+            ScheduledFuture<?> cancelled = threadPool.schedule(executed::incrementAndGet, Duration.ofMillis(200));
+
+            // like a ThreadPool, delayed tasks run after a shutdown by default
+            threadPool.shutdown();
+            assertTrue(cancelled.cancel(false));
+            assertThrows(RejectedExecutionException.class,
+                    () -> threadPool.schedule(executed::incrementAndGet, Duration.ofMillis(200)));
+            kept.get(2, TimeUnit.SECONDS);
+            assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+            assertEquals(1, executed.get());
+            assertFalse(wheelThread.isAlive());
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private static Set<Thread> timingWheelThreads() {
+        Set<Thread> threads = new HashSet<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("TimingWheel_")) {
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testTimingWheelExpiryRejected() throws Exception {
+        TimingWheelThreadPool threadPool = new TimingWheelThreadPool(1, Duration.ofMillis(1), 8,
+                new ThreadPoolExecutor.DiscardPolicy());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            threadPool.submit(() -> {
+                release.await();
+                return null;
+            });
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> threadPool.getActiveCount() == 1);
+            threadPool.setMaximumQueueSize(1);
+            threadPool.submit(() -> {
+            });
+
+            // the expired task is not admitted to the full queue
+            ScheduledFuture<?> expired = threadPool.schedule(() -> {
+            }, Duration.ofMillis(20));
+            ExecutionException e = assertThrows(ExecutionException.class, () -> expired.get(2, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        } finally {
+            release.countDown();
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        ThreadPool threadPool = ThreadPool.builder(2).metrics(true).build();
+        try {
+            AtomicInteger listenerStarted = new AtomicInteger();
+            threadPool.addListener(new ThreadPoolListener() {
+                @Override
+                public void taskStarted(Runnable task, long queueWaitNanos, boolean periodic) {
+                    listenerStarted.incrementAndGet();
+                }
+            });
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(threadPool.submit(() -> {
+                    Thread.sleep(5);
+                    return null;
+                }));
+            }
+            futures.add(threadPool.submit(() -> {
+                throw new IllegalStateException("Test Exception");
+            }));
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // expected from the failing task
+                }
+            }
+
+            ThreadPoolMetrics metrics = threadPool.getMetrics();
+            Awaitility.await().atMost(Duration.ofSeconds(2))
+                    .until(() -> metrics.getCompletedTaskCount() + metrics.getFailedTaskCount() == 21);
+            assertEquals(20, metrics.getCompletedTaskCount());
+            assertEquals(1, metrics.getFailedTaskCount());
+            assertEquals(21, listenerStarted.get());
+            assertEquals(21, metrics.getExecutionTime().getCount());
+            assertTrue(metrics.getExecutionTime().getValueAtPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(5));
+            assertTrue(metrics.getQueueWait().getMax() > 0);
+
+            ObjectName name = metrics.registerMBean("testMetrics");
+            assertEquals(20L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "CompletedTaskCount"));
+
+            threadPool.shutdown();
+            assertThrows(RejectedExecutionException.class, () -> threadPool.execute(() -> {
+            }));
+            assertEquals(1, metrics.getRejectedTaskCount());
+
+            assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+            assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testTaskRegistry() throws Exception {
+        TaskRegistry registry = TaskRegistry.getInstance();
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        RunnableTask blocking = new RunnableTask() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public boolean continueExecution() {
+                return true;
+            }
+
+            @Override
+            public void terminate() {
+            }
+        };
+
+        // started before the registry is enabled
+        LongLivedTask<Void> unregistered = LongLivedTask.create("RegistryUnregistered", blocking);
+        unregistered.start();
+        registry.setEnabled(true);
+        ThreadPool threadPool = ThreadPool.builder(1).namePrefix("Registry").build();
+        LongLivedTask<Void> task = LongLivedTask.create("RegistryTask", blocking);
+        ObjectName name = registry.registerMBean();
+        try {
+            task.start();
+            threadPool.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(2, TimeUnit.SECONDS));
+            Thread.sleep(20);
+
+            TaskRegistry.TaskInfo taskInfo = registry.getTasks(Duration.ofMillis(10)).stream()
+                    .filter(info -> info.getName().startsWith("Registry")).findFirst().get();
+            assertEquals("RegistryTask", taskInfo.getName());
+            assertEquals("RUNNING", taskInfo.getState());
+            assertEquals("RegistryTask", taskInfo.getActivity().getThreadName());
+            assertTrue(taskInfo.getActivity().getAge().toMillis() >= 20);
+            assertTrue(taskInfo.getActivity().getStackTrace().length > 0);
+            assertEquals(0, registry.getTasks().stream().filter(info -> info.getName().equals("RegistryTask"))
+                    .findFirst().get().getActivity().getStackTrace().length);
+
+            TaskRegistry.PoolInfo poolInfo = registry.getThreadPools(Duration.ZERO).stream()
+                    .filter(info -> info.getName().equals("Registry")).findFirst().get();
+            assertEquals("RUNNING", poolInfo.getState());
+            assertEquals(1, poolInfo.getActivities().size());
+            assertEquals("Registry_1", poolInfo.getActivities().get(0).getThreadName());
+            assertTrue(poolInfo.getActivities().get(0).getStackTrace().length > 0);
+
+            String dump = (String) ManagementFactory.getPlatformMBeanServer().invoke(name, "dumpStalled",
+                    new Object[] { 10L }, new String[] { long.class.getName() });
+            assertTrue(dump.contains("LongLivedTask RegistryTask RUNNING"), dump);
+            assertTrue(dump.contains("ThreadPool Registry RUNNING"), dump);
+            assertTrue(dump.contains("at "), dump);
+            assertFalse(dump.contains("RegistryUnregistered"), dump);
+            assertTrue(registry.getStalledTaskCount(10) >= 2);
+        } finally {
+            release.countDown();
+            task.cancel(true);
+            unregistered.cancel(true);
+            threadPool.shutdown();
+            registry.unregisterMBean();
+        }
+
+        try {
+            assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+            Awaitility.await().atMost(Duration.ofSeconds(2))
+                    .until(() -> registry.getTasks().stream().noneMatch(info -> info.getName().equals("RegistryTask")));
+            assertTrue(registry.getThreadPools().stream().noneMatch(info -> info.getName().equals("Registry")));
+            assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        } finally {
+            registry.setEnabled(false);
+        }
+        assertEquals(0, registry.getTaskCount());
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testTaskRegistryReenabled() throws Exception {
+        TaskRegistry registry = TaskRegistry.getInstance();
+        registry.setEnabled(true);
+        ThreadPool threadPool = ThreadPool.builder(1).namePrefix("Reenabled").build();
+        try {
+            assertTrue(registry.getThreadPools().stream().anyMatch(info -> info.getName().equals("Reenabled")));
+
+            registry.setEnabled(false);
+            assertTrue(registry.getThreadPools().stream().noneMatch(info -> info.getName().equals("Reenabled")));
+            threadPool.submit(() -> {
+            }).get();
+            assertTrue(threadPool.getRunningTasks().isEmpty());
+
+            registry.setEnabled(true);
+            assertTrue(registry.getThreadPools().stream().anyMatch(info -> info.getName().equals("Reenabled")));
+        } finally {
+            threadPool.shutdown();
+        }
+
+        try {
+            assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+            assertTrue(registry.getThreadPools().stream().noneMatch(info -> info.getName().equals("Reenabled")));
+        } finally {
+            registry.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void testFixedRateOverrunPolicies() throws InterruptedException {
+        // the first execution overruns by about 9 periods
+        List<long[]> burst = runWithOverrun(OverrunPolicy.burst());
+        for (long[] execution : burst) {
+            assertEquals(0, execution[0]);
+        }
+
+        List<long[]> skip = runWithOverrun(OverrunPolicy.skip());
+        assertTrue(skip.get(1)[0] >= 5, "Expected missed executions to be skipped");
+        assertTrue(skip.get(1)[1] < 20, "Expected the most recent execution to run");
+        assertEquals(0, skip.get(2)[0]);
+
+        List<long[]> coalesce = runWithOverrun(OverrunPolicy.coalesce());
+        assertTrue(coalesce.get(1)[0] >= 5, "Expected missed executions to be coalesced");
+        assertTrue(coalesce.get(1)[1] >= 100, "Expected the coalesced execution to run immediately");
+        assertEquals(0, coalesce.get(2)[0]);
+
+        List<long[]> catchUp = runWithOverrun(OverrunPolicy.catchUp(2));
+        assertTrue(catchUp.get(1)[0] >= 3, "Expected the oldest missed executions to be skipped");
+        assertEquals(0, catchUp.get(2)[0]);
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testSkippedExecutionsAreNotQueued() throws Exception {
+        ThreadPool threadPool = new ThreadPool(1);
+        try {
+            List<Long> missed = new CopyOnWriteArrayList<>();
+            ScheduledFuture<?> future = threadPool.scheduleAtFixedRate((missedExecutions, drift) -> {
+                missed.add(missedExecutions);
+                if (missed.size() == 1) {
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, Duration.ZERO, Duration.ofMillis(1), OverrunPolicy.skip());
+
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> missed.size() >= 3);
+            future.cancel(false);
+            assertTrue(missed.get(1) >= 200, "missed " + missed.get(1));
+
+            // the roughly 300 skipped executions never passed through the queue
+            long completed = threadPool.getCompletedTaskCount();
+            assertTrue(completed < missed.size() + 50, "completed " + completed);
+            Awaitility.await().atMost(Duration.ofSeconds(1)).until(() -> threadPool.getQueue().isEmpty());
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    /** Returns the missed executions and drift in millis of the first 4 executions */
+    private List<long[]> runWithOverrun(OverrunPolicy policy) throws InterruptedException {
+        ThreadPool threadPool = new ThreadPool(1);
+        try {
+            List<long[]> executions = new CopyOnWriteArrayList<>();
+            ScheduledFuture<?> future = threadPool.scheduleAtFixedRate((missed, drift) -> {
+                executions.add(new long[] { missed, drift.toMillis() });
+                if (executions.size() == 1) {
+                    try {
+                        Thread.sleep(190);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, Duration.ZERO, Duration.ofMillis(20), policy);
+
+            Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> executions.size() >= 4);
+            future.cancel(false);
+            return executions.subList(0, 4);
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testWorkStealing() throws Exception {
+        WorkStealingThreadPool threadPool = new WorkStealingThreadPool(4);
+        try {
+            AtomicInteger counter = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(threadPool.submit(counter::incrementAndGet));
+                threadPool.execute(counter::incrementAndGet);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            List<Callable<Integer>> callables = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                callables.add(counter::incrementAndGet);
+            }
+            threadPool.invokeAll(callables);
+
+            ScheduledFuture<Integer> scheduled = threadPool.schedule(counter::incrementAndGet, Duration.ofMillis(50));
+            scheduled.get();
+
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> counter.get() == 2011);
+            assertTrue(threadPool.submit(() -> Thread.currentThread().getName()).get().startsWith("ThreadPool_"));
+        } finally {
+            threadPool.shutdown();
+        }
+        assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+        assertTrue(threadPool.isTerminated());
+        assertThrows(RejectedExecutionException.class, () -> threadPool.execute(() -> {
+        }));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testWorkStealingShutdownNow() throws Exception {
+        WorkStealingThreadPool threadPool = new WorkStealingThreadPool(1, new ThreadPoolExecutor.DiscardPolicy());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            threadPool.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(2, TimeUnit.SECONDS));
+
+            Future<?> queued = threadPool.submit(() -> {
+            });
+            List<Future<Integer>> batch = threadPool.submitBatch(Arrays.asList(() -> 1, () -> 2));
+            List<Runnable> notExecuted = threadPool.shutdownNow();
+            assertEquals(2, notExecuted.size());
+            assertTrue(notExecuted.contains(queued));
+            assertFalse(queued.isDone());
+            for (Future<Integer> future : batch) {
+                assertThrows(CancellationException.class, () -> future.get(1, TimeUnit.SECONDS));
+            }
+
+            // rejected by a handler that does not throw
+            assertTrue(threadPool.submit(() -> {
+            }).isCancelled());
+            for (Future<Integer> future : threadPool.submitBatch(Arrays.asList(() -> 1))) {
+                assertTrue(future.isCancelled());
+            }
+        } finally {
+            release.countDown();
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testPriorityOrdering() throws Exception {
+        PriorityThreadPool threadPool = new PriorityThreadPool(1, Duration.ofMillis(10));
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            threadPool.submit(() -> {
+                latch.await();
+                return null;
+            });
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> threadPool.getQueuedPriorityTaskCount() == 0);
+
+            List<String> order = new CopyOnWriteArrayList<>();
+            threadPool.execute(new PrioritizedRunnable("aged", 0, order));
+            Thread.sleep(100);
+            threadPool.submit(() -> order.add("bulk"), -10);
+            threadPool.execute(new PrioritizedRunnable("normal", 0, order));
+            threadPool.execute(new PrioritizedRunnable("high", 2, order));
+            Future<Boolean> last = threadPool.submit(() -> order.add("deadline"), Duration.ofSeconds(1));
+            threadPool.submit(() -> order.add("urgent"), Duration.ofMillis(-200));
+            latch.countDown();
+
+            last.get();
+            assertEquals(Arrays.asList("urgent", "aged", "high", "normal", "bulk", "deadline"), order);
+        } finally {
+            threadPool.shutdown();
+        }
+        assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+    }
+
+    private static class PrioritizedRunnable implements Runnable, PrioritizedTask {
+        private final String name;
+        private final int priority;
+        private final List<String> order;
+
+        PrioritizedRunnable(String name, int priority, List<String> order) {
+            this.name = name;
+            this.priority = priority;
+            this.order = order;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public void run() {
+            order.add(name);
+        }
+    }
+
+    @Test
+    @Timeout(value = 20)
+    public void testAdmissionPolicies() throws Exception {
+        ThreadPool threadPool = ThreadPool.builder(1).metrics(true).build();
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            threadPool.submit(() -> {
+                latch.await();
+                return null;
+            });
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> threadPool.getActiveCount() == 1);
+
+            // the queue is bounded so the oldest lowest priority task is dropped
+            threadPool.setMaximumQueueSize(2);
+            threadPool.setAdmissionPolicy(new DropOldestAdmissionPolicy());
+            List<String> order = new CopyOnWriteArrayList<>();
+            Future<?> low = threadPool.submit(new PrioritizedRunnable("low", 0, order));
+            threadPool.submit(new PrioritizedRunnable("high", 5, order));
+            threadPool.submit(new PrioritizedRunnable("medium", 2, order));
+            assertTrue(low.isCancelled());
+            assertThrows(RejectedExecutionException.class,
+                    () -> threadPool.submit(new PrioritizedRunnable("lowest", -1, order)));
+            assertEquals(2, threadPool.getMetrics().getRejectedTaskCount());
+
+            // without a policy tasks are rejected while the queue is full
+            threadPool.setAdmissionPolicy(null);
+            assertThrows(RejectedExecutionException.class, () -> threadPool.submit(() -> order.add("rejected")));
+            assertEquals(3, threadPool.getMetrics().getRejectedTaskCount());
+
+            // the caller blocks until a task is taken from the queue
+            threadPool.setAdmissionPolicy(new BlockingAdmissionPolicy(Duration.ofMillis(50)));
+            assertThrows(RejectedExecutionException.class, () -> threadPool.submit(() -> order.add("timeout")));
+            threadPool.setAdmissionPolicy(new BlockingAdmissionPolicy(Duration.ofSeconds(5)));
+            CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(latch::countDown);
+            threadPool.submit(() -> order.add("blocked")).get();
+            assertEquals(Arrays.asList("high", "medium", "blocked"), order);
+
+            // at most the burst is admitted until tokens are replenished
+            threadPool.setMaximumQueueSize(Integer.MAX_VALUE);
+            threadPool.setAdmissionPolicy(new TokenBucketAdmissionPolicy(1, 3));
+            threadPool.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(threadPool.submit(() -> {
+                }));
+            }
+            assertEquals(3, futures.stream().filter(f -> !f.isCancelled()).count());
+            assertEquals(6, threadPool.getMetrics().getRejectedTaskCount());
+        } finally {
+            threadPool.shutdown();
+        }
+        assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testDropOldestForgetsRemovedTasks() throws Exception {
+        ThreadPool threadPool = new ThreadPool(1);
+        threadPool.setRemoveOnCancelPolicy(true);
+        DropOldestAdmissionPolicy policy = new DropOldestAdmissionPolicy();
+        threadPool.setMaximumQueueSize(10);
+        threadPool.setAdmissionPolicy(policy);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            threadPool.submit(() -> {
+                latch.await();
+                return null;
+            });
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> threadPool.getActiveCount() == 1);
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(threadPool.submit(() -> {
+                }));
+            }
+            assertEquals(5, policy.getTrackedCount());
+            futures.forEach(future -> future.cancel(false));
+            assertEquals(0, policy.getTrackedCount());
+
+            for (int i = 0; i < 3; i++) {
+                threadPool.submit(() -> {
+                });
+            }
+            assertEquals(3, policy.getTrackedCount());
+            assertEquals(3, threadPool.shutdownNow().size());
+            assertEquals(0, policy.getTrackedCount());
+        } finally {
+            latch.countDown();
+            threadPool.shutdownNow();
+        }
+        assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testRejectedTasksAreNotQueued() throws Exception {
+        ThreadPool threadPool = ThreadPool.builder(1).rejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy())
+                .metrics(true).build();
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            threadPool.submit(() -> {
+                latch.await();
+                return null;
+            });
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> threadPool.getActiveCount() == 1);
+
+            threadPool.setMaximumQueueSize(2);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(threadPool.submit(() -> {
+                }));
+            }
+            assertEquals(2, threadPool.getQueue().size());
+            assertEquals(98, futures.stream().filter(Future::isCancelled).count());
+            assertEquals(98, threadPool.getMetrics().getRejectedTaskCount());
+
+            latch.countDown();
+            futures.get(0).get();
+            futures.get(1).get();
+        } finally {
+            threadPool.shutdown();
+        }
+        assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Timeout(value = 20)
+    public void testCoDelAdmission() throws Exception {
+        ThreadPool threadPool = new ThreadPool(1);
+        CoDelAdmissionPolicy coDel = new CoDelAdmissionPolicy(Duration.ofMillis(1), Duration.ofMillis(20));
+        threadPool.setAdmissionPolicy(coDel);
+        threadPool.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(threadPool.submit(() -> {
+                    Thread.sleep(5);
+                    return null;
+                }));
+            }
+            Awaitility.await().atMost(Duration.ofSeconds(5)).until(coDel::isDropping);
+            for (int i = 0; i < 50; i++) {
+                futures.add(threadPool.submit(() -> {
+                }));
+            }
+            assertTrue(futures.stream().anyMatch(Future::isCancelled));
+
+            Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> threadPool.getQueue().isEmpty());
+            threadPool.submit(() -> {
+            }).get();
+            assertFalse(coDel.isDropping());
+        } finally {
+            threadPool.shutdown();
+        }
+
+        // dispatched tasks bypass the queue so a policy or bound cannot be installed
+        PriorityThreadPool priorityThreadPool = new PriorityThreadPool(1);
+        WorkStealingThreadPool workStealingThreadPool = new WorkStealingThreadPool(1);
+        try {
+            for (ThreadPool dispatchingPool : Arrays.asList(priorityThreadPool, workStealingThreadPool)) {
+                assertThrows(UnsupportedOperationException.class, () -> dispatchingPool.setAdmissionPolicy(coDel));
+                assertThrows(UnsupportedOperationException.class, () -> dispatchingPool.setMaximumQueueSize(10));
+                dispatchingPool.setAdmissionPolicy(null);
+                dispatchingPool.setMaximumQueueSize(Integer.MAX_VALUE);
+                assertEquals(Integer.MAX_VALUE, dispatchingPool.getMaximumQueueSize());
+            }
+        } finally {
+            priorityThreadPool.shutdown();
+            workStealingThreadPool.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(value = 20)
+    public void testPartitions() throws Exception {
+        ThreadPool threadPool = new ThreadPool(4);
+        try {
+            ThreadPoolPartition bulk = threadPool.createPartition("bulk", 1, 1);
+            ThreadPoolPartition interactive = threadPool.createPartition("interactive", 3, 1);
+            assertThrows(IllegalArgumentException.class, () -> threadPool.createPartition("bulk", 1, 0));
+            assertThrows(IllegalArgumentException.class, () -> threadPool.createPartition("large", 1, 3));
+            assertEquals(Arrays.asList(bulk, interactive), threadPool.getPartitions());
+
+            // an idle partition's capacity is used by another partition
+            CountDownLatch latch = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(bulk.submit(() -> {
+                    latch.await();
+                    return null;
+                }));
+            }
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> bulk.getRunningCount() == 4);
+            latch.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            // backlogged partitions share the threads in proportion to their weights
+            AtomicInteger bulkCompleted = new AtomicInteger();
+            AtomicInteger interactiveCompleted = new AtomicInteger();
+            for (int i = 0; i < 200; i++) {
+                bulk.execute(() -> sleepAndIncrement(bulkCompleted));
+                interactive.execute(() -> sleepAndIncrement(interactiveCompleted));
+            }
+            Awaitility.await().atMost(Duration.ofSeconds(10)).until(() -> interactiveCompleted.get() >= 120);
+            int bulkCount = bulkCompleted.get();
+            assertTrue(bulkCount >= 20 && bulkCount <= 70, "bulk completed " + bulkCount);
+            Awaitility.await().atMost(Duration.ofSeconds(10)).until(() -> bulkCompleted.get() == 200);
+            assertEquals(0, bulk.getQueueSize());
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> bulk.getCompletedCount() == 204);
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPartitionRejected() throws Exception {
+        ThreadPool threadPool = new ThreadPool(1, new ThreadPoolExecutor.DiscardPolicy());
+        ThreadPoolPartition partition = threadPool.createPartition("partition", 1, 0);
+        partition.submit(() -> {
+        }).get(1, TimeUnit.SECONDS);
+
+        // a discarded dispatch task does not leave its task queued in the partition
+        threadPool.shutdown();
+        Future<?> future = partition.submit(() -> {
+        });
+        assertTrue(future.isCancelled());
+        assertEquals(0, partition.getQueueSize());
+        assertTrue(threadPool.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(1, partition.getCompletedCount());
+    }
+
+    @Test
+    @Timeout(value = 20)
+    public void testPartitionMinimumWorkers() throws Exception {
+        ThreadPool threadPool = new ThreadPool(2);
+        try {
+            ThreadPoolPartition heavy = threadPool.createPartition("heavy", 100, 0);
+            ThreadPoolPartition guaranteed = threadPool.createPartition("guaranteed", 1, 1);
+            assertEquals(1, guaranteed.getMinimumWorkers());
+
+            // by weight alone the guaranteed partition would receive about 1% of the executions
+            AtomicInteger heavyCompleted = new AtomicInteger();
+            AtomicInteger guaranteedCompleted = new AtomicInteger();
+            for (int i = 0; i < 100; i++) {
+                heavy.execute(() -> sleepAndIncrement(heavyCompleted));
+                guaranteed.execute(() -> sleepAndIncrement(guaranteedCompleted));
+            }
+            Awaitility.await().atMost(Duration.ofSeconds(10))
+                    .until(() -> heavyCompleted.get() + guaranteedCompleted.get() >= 60);
+            int guaranteedCount = guaranteedCompleted.get();
+            assertTrue(guaranteedCount >= 20, "guaranteed completed " + guaranteedCount);
+        } finally {
+            threadPool.shutdown();
+        }
+        assertTrue(threadPool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testPartitionTasksCancelledOnShutdownNow() throws Exception {
+        ThreadPool threadPool = new ThreadPool(1);
+        ThreadPoolPartition first = threadPool.createPartition("first", 1, 0);
+        ThreadPoolPartition second = threadPool.createPartition("second", 1, 0);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            first.submit(() -> {
+                latch.await();
+                return null;
+            });
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> first.getRunningCount() == 1);
+
+            List<Future<?>> futures = new ArrayList<>();
+            AtomicInteger executed = new AtomicInteger();
+            for (int i = 0; i < 3; i++) {
+                futures.add(first.submit(executed::incrementAndGet));
+                second.execute(executed::incrementAndGet);
+                futures.add(second.submit(executed::incrementAndGet));
+            }
+            assertEquals(3, first.getQueueSize());
+            assertEquals(6, second.getQueueSize());
+
+            // each drained dispatch task removes only the task bound to it
+            assertEquals(9, threadPool.shutdownNow().size());
+            assertEquals(0, first.getQueueSize());
+            assertEquals(0, second.getQueueSize());
+            assertTrue(futures.stream().allMatch(Future::isCancelled));
+            assertEquals(0, executed.get());
+        } finally {
+            latch.countDown();
+            threadPool.shutdownNow();
+        }
+        assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+    }
+
+    private static void sleepAndIncrement(AtomicInteger counter) {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        counter.incrementAndGet();
+    }
+
+    @Test
+    public void testWorkerPlacement() throws Exception {
+        assertEquals(Arrays.asList(0, 1, 2, 3, 8, 10, 11), CpuAffinity.parseCpuList("0-3,8,10-11\n"));
+        WorkerPlacement pinned = WorkerPlacement.pinned(3, 5);
+        assertEquals(Collections.singletonList(3), pinned.getCpus(0));
+        assertEquals(Collections.singletonList(5), pinned.getCpus(3));
+        assertEquals(null, WorkerPlacement.none().getCpus(0));
+        List<List<Integer>> nodes = CpuAffinity.getNumaNodes();
+        assertEquals(nodes.get(0), WorkerPlacement.spread().getCpus(nodes.size()));
+        assertEquals(nodes.get(0), WorkerPlacement.pack().getCpus(0));
+
+        Assumptions.assumeTrue(CpuAffinity.isSupported());
+        int cpu = nodes.get(nodes.size() - 1).get(0);
+        ThreadPool threadPool = new ThreadPool(1);
+        threadPool.setWorkerPlacement(WorkerPlacement.pinned(cpu));
+        try {
+            // the affinity is set asynchronously once the thread starts
+            Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> Collections.singletonList(cpu)
+                    .equals(threadPool.submit(CpuAffinity::getCurrentThreadAffinity).get()));
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testMetricsDisabled() throws Exception {
+        ThreadPool threadPool = ThreadPool.builder(1).build();
+        AtomicInteger completed = new AtomicInteger();
+        try {
+            assertFalse(threadPool.isMetricsEnabled());
+            assertFalse(new ThreadPool(1).isMetricsEnabled());
+            threadPool.submit(() -> {
+            }).get();
+            assertEquals(0, threadPool.getMetrics().getExecutionTime().getCount());
+
+            threadPool.addListener(new ThreadPoolListener() {
+                @Override
+                public void taskCompleted(Runnable task, long executionNanos, Throwable exception) {
+                    completed.incrementAndGet();
+                }
+            });
+            threadPool.submit(() -> {
+            }).get();
+            Awaitility.await().atMost(Duration.ofSeconds(1)).until(() -> completed.get() == 1);
+            assertEquals(0, threadPool.getMetrics().getExecutionTime().getCount());
+            assertThrows(IllegalArgumentException.class,
+                    () -> new ElasticPoolSizer(threadPool, 1, 2, Duration.ofMillis(10)));
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBuilder() throws Exception {
+        ThreadLocal<String> initialized = new ThreadLocal<>();
+        Thread.UncaughtExceptionHandler handler = (t, e) -> {
+        };
+        ThreadPool threadPool = ThreadPool.builder(2)
+                .namePrefix("Orders")
+                .daemon(true)
+                .priority(Thread.MIN_PRIORITY)
+                .stackSize(256 * 1024)
+                .uncaughtExceptionHandler(handler)
+                .threadInitializer(() -> initialized.set(Thread.currentThread().getName()))
+                .build();
+        ThreadPool otherPool = ThreadPool.builder(1).namePrefix("Other").build();
+        try {
+            // either core thread may take a task
+            Thread thread = threadPool.submit(Thread::currentThread).get();
+            assertTrue(thread.getName().matches("Orders_[12]"), thread.getName());
+            assertTrue(thread.isDaemon());
+            assertEquals(Thread.MIN_PRIORITY, thread.getPriority());
+            assertEquals(handler, thread.getUncaughtExceptionHandler());
+            assertEquals(Boolean.TRUE,
+                    threadPool.submit(() -> Thread.currentThread().getName().equals(initialized.get())).get());
+            assertEquals("Other_1", otherPool.submit(() -> Thread.currentThread().getName()).get());
+        } finally {
+            threadPool.shutdown();
+            otherPool.shutdown();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> ThreadPool.builder(1).priority(11));
+        assertThrows(IllegalStateException.class,
+                () -> ThreadPool.builder(1).virtualThreads(true).stackSize(1024).build());
+        if (VirtualThreads.factory().isPresent()) {
+            ThreadPool virtualPool = ThreadPool.builder(1).namePrefix("Virtual").virtualThreads(true).build();
+            try {
+                assertEquals("Virtual_1", virtualPool.submit(() -> Thread.currentThread().getName()).get());
+            } finally {
+                virtualPool.shutdown();
+            }
+        } else {
+            assertThrows(UnsupportedOperationException.class, () -> ThreadPool.builder(1).virtualThreads(true).build());
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testSubmitBatch() throws Exception {
+        ThreadPool threadPool = ThreadPool.builder(4).metrics(true).build();
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                int value = i;
+                tasks.add(() -> value);
+            }
+            tasks.add(() -> {
+                throw new IllegalStateException();
+            });
+
+            List<Future<Integer>> futures = threadPool.submitBatch(tasks);
+            assertEquals(1001, futures.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, futures.get(i).get());
+            }
+            ExecutionException e = assertThrows(ExecutionException.class, () -> futures.get(1000).get());
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            Awaitility.await().atMost(Duration.ofSeconds(2))
+                    .until(() -> threadPool.getMetrics().getCompletedTaskCount() == 4);
+            assertTrue(threadPool.submitBatch(new ArrayList<Callable<Integer>>()).isEmpty());
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testSubmitBatchCancelledWhenRunnersDropped() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(() -> 1);
+        }
+
+        ThreadPool threadPool = new ThreadPool(1, new ThreadPoolExecutor.DiscardPolicy());
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            threadPool.submit(() -> {
+                latch.await();
+                return null;
+            });
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> threadPool.getActiveCount() == 1);
+
+            // the runner is rejected by a handler that does not throw
+            threadPool.setMaximumQueueSize(1);
+            threadPool.submit(() -> {
+            });
+            List<Future<Integer>> rejected = threadPool.submitBatch(tasks);
+            for (Future<Integer> future : rejected) {
+                assertThrows(CancellationException.class, () -> future.get(1, TimeUnit.SECONDS));
+            }
+
+            // the runner is drained from the queue
+            threadPool.setMaximumQueueSize(Integer.MAX_VALUE);
+            List<Future<Integer>> drained = threadPool.submitBatch(tasks);
+            assertEquals(2, threadPool.shutdownNow().size());
+            for (Future<Integer> future : drained) {
+                assertThrows(CancellationException.class, () -> future.get(1, TimeUnit.SECONDS));
+            }
+        } finally {
+            latch.countDown();
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testCoalescing() throws Exception {
+        ThreadPool threadPool = new ThreadPool(1);
+        try {
+            List<Integer> executions = new CopyOnWriteArrayList<>();
+            ScheduledFuture<?> first = threadPool.schedule("key", () -> executions.add(0), Duration.ofMillis(100));
+            for (int i = 1; i < 100; i++) {
+                int value = i;
+                assertTrue(first == threadPool.schedule("key", () -> executions.add(value), Duration.ofMillis(100)));
+            }
+            ScheduledFuture<?> other = threadPool.schedule("other", () -> executions.add(-1), Duration.ofMillis(50));
+            assertTrue(first.getDelay(TimeUnit.MILLISECONDS) > 0);
+
+            first.get();
+            other.get();
+            assertEquals(Arrays.asList(-1, 99), executions);
+
+            // the key coalesces again once its task has run
+            ScheduledFuture<?> next = threadPool.schedule("key", () -> executions.add(100), Duration.ofMillis(10));
+            assertTrue(next != first);
+            next.get();
+            assertEquals(Arrays.asList(-1, 99, 100), executions);
+
+            ScheduledFuture<?> cancelled = threadPool.schedule("key", () -> executions.add(101), Duration.ofMillis(50));
+            assertTrue(cancelled.cancel(false));
+            ScheduledFuture<?> replacement = threadPool.schedule("key", () -> executions.add(102), Duration.ofMillis(10));
+            assertTrue(replacement != cancelled);
+            replacement.get();
+            assertEquals(Arrays.asList(-1, 99, 100, 102), executions);
+        } finally {
+            threadPool.shutdown();
+        }
+        assertTrue(threadPool.awaitTermination(2, TimeUnit.SECONDS));
+        assertThrows(RejectedExecutionException.class, () -> threadPool.schedule("key", () -> {
+        }, Duration.ofMillis(10)));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    public void testCoalescingNeverRun() throws Exception {
+        ThreadPool threadPool = new ThreadPool(1, new ThreadPoolExecutor.DiscardPolicy());
+        ScheduledFuture<?> drained = threadPool.schedule("key", () -> {
+        }, Duration.ofSeconds(10));
+        assertEquals(1, threadPool.shutdownNow().size());
+        assertTrue(drained.isCancelled());
+
+        // rejected by the handler rather than coalesced
+        ScheduledFuture<?> rejected = threadPool.schedule("key", () -> {
+        }, Duration.ofMillis(10));
+        assertTrue(rejected != drained);
+        assertTrue(rejected.isCancelled());
+    }
+
+    @Test
+    @Timeout(value = 20)
+    public void testElasticSizing() throws Exception {
+        ThreadPool threadPool = ThreadPool.builder(1).metrics(true).build();
+        long keepAliveNanos = threadPool.getKeepAliveTime(TimeUnit.NANOSECONDS);
+        try (ElasticPoolSizer sizer = new ElasticPoolSizer(threadPool, 1, 8, Duration.ofMillis(5),
+                Duration.ofMillis(50), Duration.ofMillis(100))) {
+            assertFalse(threadPool.allowsCoreThreadTimeOut());
+            sizer.start();
+            assertTrue(threadPool.allowsCoreThreadTimeOut());
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                futures.add(threadPool.submit(() -> {
+                    Thread.sleep(10);
+                    return null;
+                }));
+            }
+
+            Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> threadPool.getCorePoolSize() == 8);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> threadPool.getCorePoolSize() == 1);
+            Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> threadPool.getPoolSize() <= 1);
+
+            sizer.close();
+            assertFalse(threadPool.allowsCoreThreadTimeOut());
+            assertEquals(keepAliveNanos, threadPool.getKeepAliveTime(TimeUnit.NANOSECONDS));
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testElasticSizingRejectsDispatchingPools() {
+        PriorityThreadPool threadPool = new PriorityThreadPool(1, 2);
+        try {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new ElasticPoolSizer(threadPool, 1, 2, Duration.ofMillis(10)));
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
     @Test
     public void testSetThreadFactory() {
         ThreadPool threadPool = new ThreadPool(1, (r, e) -> {